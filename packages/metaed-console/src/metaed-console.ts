@@ -13,6 +13,7 @@ import {
   Logger,
   newState,
   newMetaEdConfiguration,
+  newPipelineOptions,
   MetaEdConfiguration,
   findDataStandardVersions,
 } from '@edfi/metaed-core';
@@ -41,6 +42,10 @@ export async function metaEdConsole() {
       type: 'boolean',
       default: true,
     })
+    .option('dfaCache', {
+      describe: 'A file to persist learned parser state in, making later runs start faster',
+      type: 'string',
+    })
     .help()
     .alias('help', 'h')
     .version()
@@ -54,10 +59,12 @@ export async function metaEdConsole() {
       ...(argv['metaEdConfiguration'] as MetaEdConfiguration),
     }),
     pipelineOptions: {
+      ...newPipelineOptions(),
       runValidators: true,
       runEnhancers: true,
       runGenerators: true,
       stopOnValidationFailure: true,
+      dfaCacheFilePath: argv['dfaCache'] != null ? path.resolve(argv['dfaCache']) : null,
     },
     metaEdPlugins: defaultPlugins(),
   };
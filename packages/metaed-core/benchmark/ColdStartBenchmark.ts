@@ -0,0 +1,187 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-console */
+import { spawnSync, SpawnSyncReturns } from 'child_process';
+import fs from 'fs';
+import path from 'path';
+
+// Measures cold start of the command line syntax check in snapshot/GrammarSnapshot.ts: a new process per
+// iteration, started from the bundle alone, from its startup snapshot and as the single executable, if built.
+// Startup is timed on a single file, from launch to the first MetaEdContext as the process reports it, and to exit
+// as seen from here. Throughput is timed on the directory of a model, from launch to exit. Run
+// npm run build:snapshot in packages/metaed-core first, and npm run build:executable for the executable.
+// Results are written as JSON.
+//
+// Usage: ts-node packages/metaed-core/benchmark/ColdStartBenchmark.ts
+//   [--file <file.metaed>] [--model <directory of .metaed files>] [--output <results.json>] [--iterations <n>]
+
+type StartMode = 'bundle' | 'snapshot' | 'executable';
+
+interface ColdStartResult {
+  mode: StartMode;
+  iterations: number;
+  meanFirstContextMilliseconds: number;
+  minFirstContextMilliseconds: number;
+  meanExitMilliseconds: number;
+  minExitMilliseconds: number;
+}
+
+interface ThroughputResult {
+  mode: StartMode;
+  iterations: number;
+  files: number;
+  characters: number;
+  meanExitMilliseconds: number;
+  charactersPerSecond: number;
+}
+
+interface ColdStartReport {
+  timestamp: string;
+  nodeVersion: string;
+  file: string;
+  model: string;
+  results: ColdStartResult[];
+  throughput: ThroughputResult[];
+}
+
+const SNAPSHOT_DIRECTORY: string = path.resolve(__dirname, '../dist/snapshot');
+const BUNDLE_FILE_PATH: string = path.join(SNAPSHOT_DIRECTORY, 'grammar.js');
+const BLOB_FILE_PATH: string = path.join(SNAPSHOT_DIRECTORY, 'grammar.blob');
+const EXECUTABLE_FILE_PATH: string = path.join(
+  SNAPSHOT_DIRECTORY,
+  process.platform === 'win32' ? 'metaed-syntax.exe' : 'metaed-syntax',
+);
+const DEFAULT_FILE_PATH: string = path.resolve(
+  __dirname,
+  '../../metaed-plugin-edfi-ods-changequery-sqlserver/test/integration/student-transcript-extension-project',
+  'DomainEntity/PostSecondaryOrganization.metaed',
+);
+
+// Enough for the syntax errors of a whole model
+const MAX_OUTPUT = 64 * 1024 * 1024;
+
+function argument(name: string, defaultValue: string): string {
+  const index: number = process.argv.indexOf(`--${name}`);
+  return index >= 0 && index + 1 < process.argv.length ? process.argv[index + 1] : defaultValue;
+}
+
+function metaEdFilesIn(directory: string): string[] {
+  return fs
+    .readdirSync(directory, { withFileTypes: true })
+    .sort((a, b) => a.name.localeCompare(b.name))
+    .flatMap((entry) => {
+      const entryPath: string = path.join(directory, entry.name);
+      if (entry.isDirectory()) return entry.name === 'node_modules' ? [] : metaEdFilesIn(entryPath);
+      return entry.name.endsWith('.metaed') ? [entryPath] : [];
+    });
+}
+
+function spawn(mode: StartMode, args: string[]): { child: SpawnSyncReturns<string>; milliseconds: number } {
+  let command: string = process.execPath;
+  let commandArgs: string[] = ['--snapshot-blob', BLOB_FILE_PATH, ...args];
+  if (mode === 'bundle') commandArgs = [BUNDLE_FILE_PATH, ...args];
+  if (mode === 'executable') {
+    command = EXECUTABLE_FILE_PATH;
+    commandArgs = args;
+  }
+
+  const start: bigint = process.hrtime.bigint();
+  const child: SpawnSyncReturns<string> = spawnSync(command, commandArgs, { encoding: 'utf-8', maxBuffer: MAX_OUTPUT });
+  const milliseconds: number = Number(process.hrtime.bigint() - start) / 1e6;
+  if (child.error != null) throw child.error;
+  return { child, milliseconds };
+}
+
+function mean(values: number[]): number {
+  return values.reduce((sum: number, value: number) => sum + value, 0) / values.length;
+}
+
+function runStartup(mode: StartMode, filePath: string, iterations: number): ColdStartResult {
+  const firstContextTimings: number[] = [];
+  const exitTimings: number[] = [];
+  for (let i = 0; i < iterations; i += 1) {
+    const { child, milliseconds } = spawn(mode, ['--timing', filePath]);
+    exitTimings.push(milliseconds);
+
+    const firstContext: RegExpMatchArray | null = child.stderr.match(/first MetaEdContext: ([\d.]+) ms/);
+    if (firstContext == null) throw new Error(`${mode} run reported no first MetaEdContext:\n${child.stderr}`);
+    firstContextTimings.push(Number(firstContext[1]));
+  }
+
+  const result: ColdStartResult = {
+    mode,
+    iterations,
+    meanFirstContextMilliseconds: mean(firstContextTimings),
+    minFirstContextMilliseconds: Math.min(...firstContextTimings),
+    meanExitMilliseconds: mean(exitTimings),
+    minExitMilliseconds: Math.min(...exitTimings),
+  };
+  console.log(
+    `startup | ${mode} | first MetaEdContext ${result.meanFirstContextMilliseconds.toFixed(2)} ms | ` +
+      `exit ${result.meanExitMilliseconds.toFixed(2)} ms`,
+  );
+  return result;
+}
+
+function runThroughput(
+  mode: StartMode,
+  modelDirectory: string,
+  filePaths: string[],
+  characters: number,
+  iterations: number,
+): ThroughputResult {
+  const exitTimings: number[] = [];
+  for (let i = 0; i < iterations; i += 1) exitTimings.push(spawn(mode, [modelDirectory]).milliseconds);
+
+  const meanExitMilliseconds: number = mean(exitTimings);
+  const result: ThroughputResult = {
+    mode,
+    iterations,
+    files: filePaths.length,
+    characters,
+    meanExitMilliseconds,
+    charactersPerSecond: characters / (meanExitMilliseconds / 1000),
+  };
+  console.log(
+    `throughput | ${mode} | ${filePaths.length} files | exit ${meanExitMilliseconds.toFixed(2)} ms | ` +
+      `${Math.round(result.charactersPerSecond)} characters/s`,
+  );
+  return result;
+}
+
+function main() {
+  if (!fs.existsSync(BUNDLE_FILE_PATH) || !fs.existsSync(BLOB_FILE_PATH)) {
+    throw new Error(`No snapshot in ${SNAPSHOT_DIRECTORY}, run npm run build:snapshot in packages/metaed-core first`);
+  }
+  const filePath: string = path.resolve(argument('file', DEFAULT_FILE_PATH));
+  const modelDirectory: string = path.resolve(
+    argument('model', path.resolve(__dirname, '../../../node_modules/@edfi/ed-fi-model-5.2')),
+  );
+  const outputFilePath: string = path.resolve(argument('output', 'cold-start-benchmark.json'));
+  const iterations: number = Number(argument('iterations', '20'));
+
+  const modes: StartMode[] = fs.existsSync(EXECUTABLE_FILE_PATH)
+    ? ['bundle', 'snapshot', 'executable']
+    : ['bundle', 'snapshot'];
+  const modelFilePaths: string[] = metaEdFilesIn(modelDirectory);
+  const characters: number = modelFilePaths.reduce(
+    (sum: number, modelFilePath: string) => sum + fs.readFileSync(modelFilePath, 'utf-8').length,
+    0,
+  );
+
+  const report: ColdStartReport = {
+    timestamp: new Date().toISOString(),
+    nodeVersion: process.version,
+    file: filePath,
+    model: modelDirectory,
+    results: modes.map((mode: StartMode) => runStartup(mode, filePath, iterations)),
+    throughput: modes.map((mode: StartMode) => runThroughput(mode, modelDirectory, modelFilePaths, characters, iterations)),
+  };
+  fs.writeFileSync(outputFilePath, JSON.stringify(report, null, 2));
+  console.log(`\nResults written to ${outputFilePath}`);
+}
+
+main();
@@ -0,0 +1,291 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle, no-console */
+import antlr4 from '@edfi/antlr4/index';
+import fs from 'fs';
+import path from 'path';
+import { BaseLexer } from '../src/grammar/gen/BaseLexer';
+import { MetaEdParser } from '../src/grammar/MetaEdParser';
+import { MetaEdLexer } from '../src/grammar/MetaEdLexer';
+import { CompactTokenStream } from '../src/grammar/CompactTokenStream';
+import { MetaEdErrorListener } from '../src/grammar/MetaEdErrorListener';
+import { clearDfas } from '../src/grammar/DfaCache';
+import { Chunk, splitIntoChunks } from '../src/grammar/ChunkedLexer';
+import { DecisionProfile, formatDecisionProfiles, profileMetaEd } from '../src/grammar/PredictionProfiler';
+import { ValidationFailure } from '../src/validator/ValidationFailure';
+
+// Measures grammar throughput: tokens per second for the lexers, and top level entities per second for
+// MetaEdParser.metaEd() and topLevelEntity(), with cold and warm DFAs, in SLL and LL prediction modes, for inputs
+// from one entity up to a full model. Results are written as JSON, and can be compared against an earlier run.
+// With --profile, instead profiles each parser decision over a metaEd() parse of the full model, with cold and
+// then warm DFAs, in the given prediction mode.
+//
+// Usage: ts-node packages/metaed-core/benchmark/GrammarBenchmark.ts
+//   [--model <directory of .metaed files>] [--output <results.json>] [--compare <earlier results.json>]
+//   [--iterations <n>] [--warmup <n>] [--profile [SLL|LL]]
+
+type DfaState = 'cold' | 'warm';
+type PredictionModeName = 'SLL' | 'LL';
+
+interface BenchmarkInput {
+  name: string;
+  // the entities wrapped in a namespace, as parsed by metaEd()
+  metaEd: string;
+  // the entities on their own, each as parsed by topLevelEntity()
+  entities: string[];
+}
+
+interface BenchmarkResult {
+  benchmark: string;
+  input: string;
+  dfa: DfaState;
+  predictionMode: PredictionModeName | null;
+  characters: number;
+  tokens: number;
+  entities: number;
+  syntaxErrors: number;
+  iterations: number;
+  meanMilliseconds: number;
+  minMilliseconds: number;
+  tokensPerSecond: number;
+  entitiesPerSecond: number;
+}
+
+interface BenchmarkReport {
+  timestamp: string;
+  nodeVersion: string;
+  model: string;
+  results: BenchmarkResult[];
+}
+
+interface ProfileReport {
+  timestamp: string;
+  nodeVersion: string;
+  model: string;
+  predictionMode: PredictionModeName;
+  cold: DecisionProfile[];
+  warm: DecisionProfile[];
+}
+
+interface Measurement {
+  tokens: number;
+  entities: number;
+  syntaxErrors: number;
+}
+
+function argument(name: string, defaultValue: string): string {
+  const index: number = process.argv.indexOf(`--${name}`);
+  return index >= 0 && index + 1 < process.argv.length ? process.argv[index + 1] : defaultValue;
+}
+
+function metaEdFilesIn(directory: string): string[] {
+  return fs
+    .readdirSync(directory, { withFileTypes: true })
+    .sort((a, b) => a.name.localeCompare(b.name))
+    .flatMap((entry) => {
+      const entryPath: string = path.join(directory, entry.name);
+      if (entry.isDirectory()) return entry.name === 'node_modules' ? [] : metaEdFilesIn(entryPath);
+      return entry.name.endsWith('.metaed') ? [entryPath] : [];
+    });
+}
+
+/**
+ * Inputs of increasing size, each the first n entities of the model. Each top level entity starts a new chunk
+ * when splitting into as many chunks as possible.
+ */
+function benchmarkInputs(modelDirectory: string): BenchmarkInput[] {
+  const modelText: string = metaEdFilesIn(modelDirectory)
+    .map((filePath: string) => fs.readFileSync(filePath, 'utf-8'))
+    .join('\n');
+  const entities: string[] = splitIntoChunks(modelText, Number.MAX_SAFE_INTEGER).map((chunk: Chunk) => chunk.text);
+  const sizes: number[] = [1, 10, 100, entities.length].filter((size, index, all) => all.indexOf(size) === index);
+  return sizes
+    .filter((size: number) => size <= entities.length)
+    .map((size: number) => {
+      const inputEntities: string[] = entities.slice(0, size);
+      return {
+        name: size === entities.length ? `full model (${size} entities)` : `${size} entities`,
+        metaEd: `Begin Namespace EdFi core\n${inputEntities.join('\n')}\nEnd Namespace\n`,
+        entities: inputEntities,
+      };
+    });
+}
+
+function lex(lexer: any): Measurement {
+  let tokens = 0;
+  while (lexer.nextToken().type !== antlr4.Token.EOF) tokens += 1;
+  return { tokens, entities: 0, syntaxErrors: 0 };
+}
+
+function parse(text: string, predictionMode: PredictionModeName, rule: 'metaEd' | 'topLevelEntity'): Measurement {
+  const failures: ValidationFailure[] = [];
+  const errorListener = new MetaEdErrorListener(failures);
+  const lexer: any = new MetaEdLexer(new antlr4.InputStream(text));
+  const tokenStream = new CompactTokenStream(lexer);
+  const parser: any = new MetaEdParser(tokenStream);
+  lexer.removeErrorListeners();
+  lexer.addErrorListener(errorListener);
+  parser.removeErrorListeners();
+  parser.addErrorListener(errorListener);
+  parser._interp.predictionMode = antlr4.atn.PredictionMode[predictionMode];
+  const tree: any = parser[rule]();
+  const entities: number =
+    rule === 'metaEd' ? tree.namespace().reduce((sum: number, namespace) => sum + namespace.topLevelEntity().length, 0) : 1;
+  return { tokens: tokenStream.size, entities, syntaxErrors: failures.length };
+}
+
+function sumOf(measurements: Measurement[]): Measurement {
+  return measurements.reduce(
+    (sum: Measurement, m: Measurement) => ({
+      tokens: sum.tokens + m.tokens,
+      entities: sum.entities + m.entities,
+      syntaxErrors: sum.syntaxErrors + m.syntaxErrors,
+    }),
+    { tokens: 0, entities: 0, syntaxErrors: 0 },
+  );
+}
+
+function run(
+  benchmark: string,
+  input: BenchmarkInput,
+  dfa: DfaState,
+  predictionMode: PredictionModeName | null,
+  iterations: number,
+  warmup: number,
+  body: () => Measurement,
+): BenchmarkResult {
+  if (dfa === 'warm') {
+    for (let i = 0; i < warmup; i += 1) body();
+  }
+
+  const timings: number[] = [];
+  let measurement: Measurement = { tokens: 0, entities: 0, syntaxErrors: 0 };
+  for (let i = 0; i < iterations; i += 1) {
+    if (dfa === 'cold') clearDfas();
+    const start: bigint = process.hrtime.bigint();
+    measurement = body();
+    timings.push(Number(process.hrtime.bigint() - start) / 1e6);
+  }
+
+  const meanMilliseconds: number = timings.reduce((sum, timing) => sum + timing, 0) / timings.length;
+  const result: BenchmarkResult = {
+    benchmark,
+    input: input.name,
+    dfa,
+    predictionMode,
+    characters: input.metaEd.length,
+    ...measurement,
+    iterations,
+    meanMilliseconds,
+    minMilliseconds: Math.min(...timings),
+    tokensPerSecond: measurement.tokens / (meanMilliseconds / 1000),
+    entitiesPerSecond: measurement.entities / (meanMilliseconds / 1000),
+  };
+  console.log(
+    `${benchmark} | ${input.name} | ${dfa} | ${predictionMode ?? '-'} | ${meanMilliseconds.toFixed(2)} ms | ` +
+      `${Math.round(result.tokensPerSecond)} tokens/s | ${Math.round(result.entitiesPerSecond)} entities/s`,
+  );
+  return result;
+}
+
+function runBenchmarks(modelDirectory: string, iterations: number, warmup: number): BenchmarkResult[] {
+  const results: BenchmarkResult[] = [];
+  const dfaStates: DfaState[] = ['cold', 'warm'];
+  const predictionModes: PredictionModeName[] = ['SLL', 'LL'];
+
+  benchmarkInputs(modelDirectory).forEach((input: BenchmarkInput) => {
+    dfaStates.forEach((dfa: DfaState) => {
+      results.push(
+        run('BaseLexer', input, dfa, null, iterations, warmup, () =>
+          lex(new BaseLexer(new antlr4.InputStream(input.metaEd))),
+        ),
+      );
+      results.push(
+        run('MetaEdLexer', input, dfa, null, iterations, warmup, () =>
+          lex(new MetaEdLexer(new antlr4.InputStream(input.metaEd))),
+        ),
+      );
+      predictionModes.forEach((predictionMode: PredictionModeName) => {
+        results.push(
+          run('metaEd', input, dfa, predictionMode, iterations, warmup, () => parse(input.metaEd, predictionMode, 'metaEd')),
+        );
+        results.push(
+          run('topLevelEntity', input, dfa, predictionMode, iterations, warmup, () =>
+            sumOf(input.entities.map((entity: string) => parse(entity, predictionMode, 'topLevelEntity'))),
+          ),
+        );
+      });
+    });
+  });
+  return results;
+}
+
+function runProfile(modelDirectory: string, predictionMode: PredictionModeName): ProfileReport {
+  const input: BenchmarkInput = benchmarkInputs(modelDirectory).slice(-1)[0];
+  const errorListener = new MetaEdErrorListener([]);
+  clearDfas();
+  const cold: DecisionProfile[] = profileMetaEd(errorListener, input.metaEd, predictionMode);
+  const warm: DecisionProfile[] = profileMetaEd(errorListener, input.metaEd, predictionMode);
+  console.log(`${input.name} | cold | ${predictionMode}\n${formatDecisionProfiles(cold)}\n`);
+  console.log(`${input.name} | warm | ${predictionMode}\n${formatDecisionProfiles(warm)}`);
+  return {
+    timestamp: new Date().toISOString(),
+    nodeVersion: process.version,
+    model: modelDirectory,
+    predictionMode,
+    cold,
+    warm,
+  };
+}
+
+const resultKey = (result: BenchmarkResult): string =>
+  `${result.benchmark} | ${result.input} | ${result.dfa} | ${result.predictionMode ?? '-'}`;
+
+/**
+ * Prints the change in mean time for each benchmark also in an earlier report
+ */
+function compare(baseline: BenchmarkReport, current: BenchmarkReport) {
+  const baselineResults: Map<string, BenchmarkResult> = new Map(
+    baseline.results.map((result: BenchmarkResult) => [resultKey(result), result]),
+  );
+  console.log(`\nCompared to ${baseline.timestamp}:`);
+  current.results.forEach((result: BenchmarkResult) => {
+    const baselineResult: BenchmarkResult | undefined = baselineResults.get(resultKey(result));
+    if (baselineResult == null) return;
+    const change: number = (result.meanMilliseconds / baselineResult.meanMilliseconds - 1) * 100;
+    console.log(`${resultKey(result)} | ${change >= 0 ? '+' : ''}${change.toFixed(1)}% time`);
+  });
+}
+
+function main() {
+  const modelDirectory: string = path.resolve(
+    argument('model', path.resolve(__dirname, '../../../node_modules/@edfi/ed-fi-model-5.2')),
+  );
+  const outputFilePath: string = path.resolve(argument('output', 'grammar-benchmark.json'));
+  const compareFilePath: string = argument('compare', '');
+  const iterations: number = Number(argument('iterations', '10'));
+  const warmup: number = Number(argument('warmup', '5'));
+
+  if (process.argv.includes('--profile')) {
+    const predictionMode: PredictionModeName = argument('profile', 'LL') === 'SLL' ? 'SLL' : 'LL';
+    fs.writeFileSync(outputFilePath, JSON.stringify(runProfile(modelDirectory, predictionMode), null, 2));
+    console.log(`\nProfile written to ${outputFilePath}`);
+    return;
+  }
+
+  const report: BenchmarkReport = {
+    timestamp: new Date().toISOString(),
+    nodeVersion: process.version,
+    model: modelDirectory,
+    results: runBenchmarks(modelDirectory, iterations, warmup),
+  };
+  fs.writeFileSync(outputFilePath, JSON.stringify(report, null, 2));
+  console.log(`\nResults written to ${outputFilePath}`);
+
+  if (compareFilePath !== '') compare(JSON.parse(fs.readFileSync(compareFilePath, 'utf-8')), report);
+}
+
+main();
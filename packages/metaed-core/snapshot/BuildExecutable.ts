@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-console */
+import { execFileSync } from 'child_process';
+import fs from 'fs';
+import path from 'path';
+import { inject } from 'postject';
+
+// Builds the command line syntax check in GrammarSnapshot.ts into a Node single executable application,
+// dist/snapshot/metaed-syntax, for CI runs where starting Node and loading the grammar costs more than parsing.
+// The executable is a copy of the Node binary running this script, with the startup snapshot of the bundle built
+// by npm run build:snapshot injected, so it needs no Node install or node_modules and starts with the grammar
+// already loaded, and with warm DFAs if METAED_DFA_CACHE names a DFA cache file. The snapshot is injected with the
+// postject devDependency. Needs Node 20.12 or later.
+//
+// Usage: npm run build:executable in packages/metaed-core
+
+const SNAPSHOT_DIRECTORY: string = path.resolve(__dirname, '../dist/snapshot');
+const BUNDLE_FILE_PATH: string = path.join(SNAPSHOT_DIRECTORY, 'grammar.js');
+const SEA_CONFIG_FILE_PATH: string = path.join(SNAPSHOT_DIRECTORY, 'sea-config.json');
+const SEA_BLOB_FILE_PATH: string = path.join(SNAPSHOT_DIRECTORY, 'sea-prep.blob');
+const EXECUTABLE_FILE_PATH: string = path.join(
+  SNAPSHOT_DIRECTORY,
+  process.platform === 'win32' ? 'metaed-syntax.exe' : 'metaed-syntax',
+);
+
+// The fuse Node looks for to tell a single executable application from a plain Node binary
+const SEA_SENTINEL_FUSE = 'NODE_SEA_FUSE_fce680ab2cc467b6e072b8b5df1996b2';
+
+function exec(command: string, args: string[]) {
+  execFileSync(command, args, { stdio: 'inherit' });
+}
+
+async function main() {
+  if (!fs.existsSync(BUNDLE_FILE_PATH)) {
+    throw new Error(`No bundle at ${BUNDLE_FILE_PATH}, run npm run build:snapshot first`);
+  }
+
+  fs.writeFileSync(
+    SEA_CONFIG_FILE_PATH,
+    JSON.stringify(
+      { main: BUNDLE_FILE_PATH, output: SEA_BLOB_FILE_PATH, disableExperimentalSEAWarning: true, useSnapshot: true },
+      null,
+      2,
+    ),
+  );
+  exec(process.execPath, ['--experimental-sea-config', SEA_CONFIG_FILE_PATH]);
+
+  fs.copyFileSync(process.execPath, EXECUTABLE_FILE_PATH);
+  if (process.platform === 'darwin') exec('codesign', ['--remove-signature', EXECUTABLE_FILE_PATH]);
+  await inject(EXECUTABLE_FILE_PATH, 'NODE_SEA_BLOB', fs.readFileSync(SEA_BLOB_FILE_PATH), {
+    sentinelFuse: SEA_SENTINEL_FUSE,
+    machoSegmentName: process.platform === 'darwin' ? 'NODE_SEA' : undefined,
+  });
+  if (process.platform === 'darwin') exec('codesign', ['--sign', '-', EXECUTABLE_FILE_PATH]);
+
+  console.log(`\nExecutable written to ${EXECUTABLE_FILE_PATH}`);
+}
+
+main().catch((error) => {
+  console.error(error);
+  process.exitCode = 1;
+});
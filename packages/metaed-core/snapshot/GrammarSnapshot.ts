@@ -0,0 +1,99 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-console */
+import fs from 'fs';
+import path from 'path';
+import { performance } from 'perf_hooks';
+import v8 from 'v8';
+import { beginNamespaceText, END_NAMESPACE_TEXT } from '../src/file/LoadFileIndex';
+import { loadDfaCache } from '../src/grammar/DfaCache';
+import { MetaEdErrorListener } from '../src/grammar/MetaEdErrorListener';
+import { buildMetaEdTwoStage } from '../src/grammar/ParseTreeBuilder';
+import { ValidationFailure } from '../src/validator/ValidationFailure';
+
+// A command line syntax check of .metaed files, for short validations where startup dominates. npm run
+// build:snapshot bundles it into dist/snapshot/grammar.js and builds that into a Node startup snapshot,
+// dist/snapshot/grammar.blob. The snapshot holds the heap as it is after loading the generated lexer and parser,
+// deserializing their ATNs, building MetaEdParser's fixed lookahead predictions and parsing a single entity, so a
+// process started from it skips all of that. The blob only runs on the Node binary that built it. If the
+// METAED_DFA_CACHE environment variable names a DFA cache file when the snapshot is built, the snapshot also holds
+// the DFA states learned in that cache, so the process starts with warm DFAs, and the build fails if the cache does
+// not load, such as one saved by a different grammar or runtime version. snapshot/BuildExecutable.ts builds
+// the same snapshot into a single executable.
+//
+// Usage: node --snapshot-blob dist/snapshot/grammar.blob [--timing] <file.metaed or directory>...
+//   or, without the snapshot: node dist/snapshot/grammar.js [--timing] <file.metaed or directory>...
+//   or, as a single executable: dist/snapshot/metaed-syntax [--timing] <file.metaed or directory>...
+// A directory is checked for every .metaed file in it and its subdirectories.
+// With --timing, the milliseconds from process start to the first MetaEdContext are written to stderr.
+
+const WARM_UP_METAED: string = [
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '',
+].join('\n');
+
+// Each file is parsed on its own in a core namespace, which puts its first line on the second line
+const FILE_LINE_OFFSET = 1;
+
+function metaEdFilesIn(filePath: string): string[] {
+  if (!fs.statSync(filePath).isDirectory()) return [filePath];
+  return fs
+    .readdirSync(filePath, { withFileTypes: true })
+    .sort((a, b) => a.name.localeCompare(b.name))
+    .flatMap((entry) => {
+      const entryPath: string = path.join(filePath, entry.name);
+      if (entry.isDirectory()) return entry.name === 'node_modules' ? [] : metaEdFilesIn(entryPath);
+      return entry.name.endsWith('.metaed') ? [entryPath] : [];
+    });
+}
+
+function syntaxCheck(metaEdContents: string): ValidationFailure[] {
+  const failures: ValidationFailure[] = [];
+  buildMetaEdTwoStage(
+    new MetaEdErrorListener(failures),
+    beginNamespaceText('EdFi', '', false) + metaEdContents + END_NAMESPACE_TEXT,
+  );
+  return failures;
+}
+
+function main(args: string[]) {
+  const timing: boolean = args.includes('--timing');
+  let errorCount = 0;
+
+  args
+    .filter((arg: string) => arg !== '--timing')
+    .flatMap(metaEdFilesIn)
+    .forEach((filePath: string, index: number) => {
+      const failures: ValidationFailure[] = syntaxCheck(fs.readFileSync(filePath, 'utf-8'));
+      if (timing && index === 0) console.error(`first MetaEdContext: ${performance.now().toFixed(2)} ms`);
+      failures.forEach((failure: ValidationFailure) => {
+        const line: number = failure.sourceMap == null ? 0 : failure.sourceMap.line - FILE_LINE_OFFSET;
+        const column: number = failure.sourceMap == null ? 0 : failure.sourceMap.column;
+        console.log(`${filePath}:${line}:${column} ${failure.message}`);
+      });
+      errorCount += failures.length;
+    });
+  process.exitCode = errorCount > 0 ? 1 : 0;
+}
+
+if (v8.startupSnapshot.isBuildingSnapshot()) {
+  const dfaCacheFilePath: string | undefined = process.env.METAED_DFA_CACHE;
+  if (dfaCacheFilePath != null && !loadDfaCache(dfaCacheFilePath)) {
+    throw new Error(`Unable to load the DFA cache ${dfaCacheFilePath} into the snapshot`);
+  }
+  syntaxCheck(WARM_UP_METAED);
+  // a process started from the snapshot has no script path in its arguments, unless it is a single executable,
+  // which repeats its own path in place of the script path
+  v8.startupSnapshot.setDeserializeMainFunction(() =>
+    main(process.argv.slice(process.argv[1] === process.execPath ? 2 : 1)),
+  );
+} else {
+  main(process.argv.slice(2));
+}
@@ -51,7 +51,7 @@ export type State = {
   // the line number indexing for the concatenation of all .metaed files
   fileIndex: FileIndex | null;
 
-  // the ANTLR parse tree of the concatenated .metaed files
+  // the ANTLR parse tree of all .metaed files, with line numbers as for their concatenation
   parseTree: MetaEdGrammar | null;
 
   // the MetaEd environment
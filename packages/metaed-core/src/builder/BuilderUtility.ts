@@ -3,9 +3,7 @@
 // The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
 // See the LICENSE and NOTICES files in the project root for more information.
 
-function quoteCorrection(rawDocumentation: string): string {
-  return rawDocumentation.substr(1, rawDocumentation.length - 2).replace(/""/g, '"');
-}
+import { TextToken, unescapeText } from '../grammar/MetaEdTokenFactory';
 
 // ANTLR provides token text of the form <xyz> for some error conditions
 // Our language has no valid text tokens that start with '<'
@@ -15,15 +13,15 @@ function quoteCorrection(rawDocumentation: string): string {
 export const isErrorText = (text: string): boolean => text == null || text.startsWith('<');
 
 function extractText(contextWithText: any): string {
-  if (
-    contextWithText.exception ||
-    contextWithText.TEXT() == null ||
-    contextWithText.TEXT().exception != null ||
-    isErrorText(contextWithText.TEXT().getText())
-  ) {
-    return '';
-  }
-  return quoteCorrection(contextWithText.TEXT().getText());
+  if (contextWithText.exception || contextWithText.TEXT() == null || contextWithText.TEXT().exception != null) return '';
+
+  const textToken: any = contextWithText.TEXT().getSymbol();
+  const rawText: string = textToken.text;
+  if (isErrorText(rawText)) return '';
+
+  // TEXT tokens from MetaEdLexer unescape once and memoize
+  if (textToken instanceof TextToken) return textToken.unescapedText;
+  return unescapeText(rawText);
 }
 
 export const extractShortDescription = extractText;
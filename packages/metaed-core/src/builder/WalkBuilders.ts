@@ -3,9 +3,15 @@
 // The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
 // See the LICENSE and NOTICES files in the project root for more information.
 
-import antlr4 from '@edfi/antlr4';
+import { FusedParseTreeWalker } from '../grammar/FusedParseTreeWalker';
+import { MetaEdGrammar } from '../grammar/gen/MetaEdGrammar';
 import { MetaEdGrammarListener } from '../grammar/gen/MetaEdGrammarListener';
+import { MetaEdEnvironment } from '../MetaEdEnvironment';
+import { EntityProperty } from '../model/property/EntityProperty';
+import { newPropertyIndex, PropertyIndex } from '../model/property/PropertyRepository';
+import { allPropertyTypes, PropertyType } from '../model/property/PropertyType';
 import { State } from '../State';
+import { ValidationFailure } from '../validator/ValidationFailure';
 import { nextMacroTask } from '../Utility';
 import { AssociationBuilder } from './AssociationBuilder';
 import { AssociationExtensionBuilder } from './AssociationExtensionBuilder';
@@ -31,39 +37,71 @@ import { StringTypeBuilder } from './StringTypeBuilder';
 
 import { SyntaxValidatingBuilder } from './SyntaxValidatingBuilder';
 
+type BuilderFactory = (metaEd: MetaEdEnvironment, validationFailures: ValidationFailure[]) => MetaEdGrammarListener;
+
+// Every builder but NamespaceBuilder, in the order they were walked one at a time
+const entityBuilders: BuilderFactory[] = [
+  (metaEd, validationFailures) => new AssociationBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new AssociationExtensionBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new AssociationSubclassBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new ChoiceBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new CommonBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new CommonExtensionBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new CommonSubclassBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DecimalTypeBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DescriptorBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DomainBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DomainEntityBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DomainEntityExtensionBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new DomainEntitySubclassBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new EnumerationBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new IntegerTypeBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new InterchangeBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new SharedDecimalBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new SharedIntegerBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new SharedStringBuilder(metaEd, validationFailures),
+  (metaEd, validationFailures) => new StringTypeBuilder(metaEd, validationFailures),
+
+  (metaEd, validationFailures) => new SyntaxValidatingBuilder(metaEd, validationFailures),
+];
+
+/**
+ * The output a builder would have added to the shared validation failures and property index, kept apart
+ */
+interface BuilderOutput {
+  validationFailures: ValidationFailure[];
+  propertyIndex: PropertyIndex;
+}
+
+/**
+ * Runs the builders over the parse tree in two walks. NamespaceBuilder goes first, as all others have a dependency
+ * on it, on a walk of just the namespace headers, which is all it listens to. Then every other builder listens to
+ * a single FusedParseTreeWalker walk, in place of a walk each.
+ *
+ * The builders other than NamespaceBuilder only share the validation failures and the property index, which get
+ * the output of one builder after another as they did when each builder had its own walk. So each builder gets its
+ * own while walking, which are appended in builder order after.
+ */
 export async function execute(state: State): Promise<void> {
-  const builders: MetaEdGrammarListener[] = [
-    // NamespaceBuilder goes first, all others have a dependency on it
-    new NamespaceBuilder(state.metaEd, state.validationFailure),
+  if (state.parseTree == null) return;
 
-    new AssociationBuilder(state.metaEd, state.validationFailure),
-    new AssociationExtensionBuilder(state.metaEd, state.validationFailure),
-    new AssociationSubclassBuilder(state.metaEd, state.validationFailure),
-    new ChoiceBuilder(state.metaEd, state.validationFailure),
-    new CommonBuilder(state.metaEd, state.validationFailure),
-    new CommonExtensionBuilder(state.metaEd, state.validationFailure),
-    new CommonSubclassBuilder(state.metaEd, state.validationFailure),
-    new DecimalTypeBuilder(state.metaEd, state.validationFailure),
-    new DescriptorBuilder(state.metaEd, state.validationFailure),
-    new DomainBuilder(state.metaEd, state.validationFailure),
-    new DomainEntityBuilder(state.metaEd, state.validationFailure),
-    new DomainEntityExtensionBuilder(state.metaEd, state.validationFailure),
-    new DomainEntitySubclassBuilder(state.metaEd, state.validationFailure),
-    new EnumerationBuilder(state.metaEd, state.validationFailure),
-    new IntegerTypeBuilder(state.metaEd, state.validationFailure),
-    new InterchangeBuilder(state.metaEd, state.validationFailure),
-    new SharedDecimalBuilder(state.metaEd, state.validationFailure),
-    new SharedIntegerBuilder(state.metaEd, state.validationFailure),
-    new SharedStringBuilder(state.metaEd, state.validationFailure),
-    new StringTypeBuilder(state.metaEd, state.validationFailure),
+  new FusedParseTreeWalker([new NamespaceBuilder(state.metaEd, state.validationFailure)]).walk(
+    state.parseTree,
+    (context: any) => context instanceof MetaEdGrammar.TopLevelEntityContext,
+  );
+  await nextMacroTask();
 
-    new SyntaxValidatingBuilder(state.metaEd, state.validationFailure),
-  ];
-  const parseTreeWalker = new antlr4.tree.ParseTreeWalker();
+  const outputs: BuilderOutput[] = entityBuilders.map(() => ({ validationFailures: [], propertyIndex: newPropertyIndex() }));
+  const builders: MetaEdGrammarListener[] = entityBuilders.map((builderFactory: BuilderFactory, index: number) =>
+    builderFactory({ ...state.metaEd, propertyIndex: outputs[index].propertyIndex }, outputs[index].validationFailures),
+  );
+  new FusedParseTreeWalker(builders).walk(state.parseTree);
 
-  // eslint-disable-next-line no-restricted-syntax
-  for (const builder of builders) {
-    parseTreeWalker.walk(builder, state.parseTree);
-    await nextMacroTask();
-  }
+  outputs.forEach((output: BuilderOutput) => {
+    state.validationFailure.push(...output.validationFailures);
+    allPropertyTypes.forEach((propertyType: PropertyType) => {
+      (state.metaEd.propertyIndex[propertyType] as EntityProperty[]).push(...output.propertyIndex[propertyType]);
+    });
+  });
+  await nextMacroTask();
 }
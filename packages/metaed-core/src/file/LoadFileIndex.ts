@@ -9,13 +9,25 @@ import { MetaEdFile, FileSet } from './MetaEdFile';
 import { createFileIndex } from './FileIndex';
 import { Logger } from '../Logger';
 
-function startNamespace(namespace: string, projectExtension: string, isExtension: boolean) {
+/**
+ * The line that opens the namespace of a file set, as added ahead of its files in the file index
+ */
+export function beginNamespaceText(namespace: string, projectExtension: string, isExtension: boolean): string {
   const adjustedProjectExtension = isExtension ? projectExtension : 'core';
-  return createMetaEdFile('InMemory', 'InMemory', `Begin Namespace ${namespace} ${adjustedProjectExtension}\n`);
+  return `Begin Namespace ${namespace} ${adjustedProjectExtension}\n`;
+}
+
+/**
+ * The line that closes the namespace of a file set, as added after its files in the file index
+ */
+export const END_NAMESPACE_TEXT = 'End Namespace\n';
+
+function startNamespace(namespace: string, projectExtension: string, isExtension: boolean) {
+  return createMetaEdFile('InMemory', 'InMemory', beginNamespaceText(namespace, projectExtension, isExtension));
 }
 
 function endNamespace() {
-  return createMetaEdFile('InMemory', 'InMemory', 'End Namespace\n');
+  return createMetaEdFile('InMemory', 'InMemory', END_NAMESPACE_TEXT);
 }
 
 export function loadFileIndex(state: State): void {
@@ -0,0 +1,276 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { TerminalNode } from '@edfi/antlr4/tree/Tree';
+import os from 'os';
+import { State } from '../State';
+import { FileSet, MetaEdFile } from '../file/MetaEdFile';
+import { FileAndLineNumber, FileIndex, FileMap } from '../file/FileIndex';
+import { beginNamespaceText, END_NAMESPACE_TEXT } from '../file/LoadFileIndex';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { Chunk, LexedChunk, lexChunksInParallel } from './ChunkedLexer';
+import { parseChunksInParallel, ParsedChunk } from './ChunkedParser';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { buildMetaEdByEntity } from './EntitySlicedParser';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { SymbolTable } from './SymbolTable';
+import { TokenBuffer, TokenBufferArrays } from './TokenBuffer';
+import { Logger } from '../Logger';
+
+// Files larger than this are parsed a top level entity at a time, spreading a single large file across threads
+const ENTITY_SLICED_FILE_LENGTH = 256 * 1024;
+
+/**
+ * A single file wrapped in the Begin and End Namespace lines of its file set, so it can be parsed on its own with
+ * metaEd(). The chunk starts on the line before the file's first line in the file index, so that every line of the
+ * file keeps its line number in the concatenation of all files, which is what the file index maps back to a file.
+ */
+export interface FileChunk {
+  chunk: Chunk;
+  // null for the chunk of a file set without files
+  file: MetaEdFile | null;
+  // where the file contents start and end in the chunk text
+  contentsStart: number;
+  contentsEnd: number;
+}
+
+function fileChunkFor(fileSet: FileSet, file: MetaEdFile | null, firstLine: number): FileChunk {
+  const header: string = beginNamespaceText(fileSet.namespaceName, fileSet.projectExtension, fileSet.isExtension);
+  const contents: string = file == null ? '' : file.contents;
+  return {
+    chunk: { text: header + contents + END_NAMESPACE_TEXT, offset: 0, line: firstLine - 1 },
+    file,
+    contentsStart: header.length,
+    contentsEnd: header.length + contents.length,
+  };
+}
+
+/**
+ * The file chunks of each file set, with line numbers from the file index, which has each file set's files
+ * in order between its Begin and End Namespace lines. A file set without files is a chunk of just those two lines.
+ */
+export function fileChunksFor(fileSets: FileSet[], fileIndex: FileIndex): FileChunk[][] {
+  const entries: FileAndLineNumber[] = fileIndex.fileAndLineNumbersSorted;
+  let entryIndex = 0;
+  return fileSets.map((fileSet: FileSet) => {
+    const beginNamespaceLine: number = entries[entryIndex].lineNumber;
+    entryIndex += 1;
+    const fileChunks: FileChunk[] = fileSet.files.map((file: MetaEdFile) => {
+      const fileLine: number = entries[entryIndex].lineNumber;
+      entryIndex += 1;
+      return fileChunkFor(fileSet, file, fileLine);
+    });
+    // skip the End Namespace line
+    entryIndex += 1;
+    return fileChunks.length > 0 ? fileChunks : [fileChunkFor(fileSet, null, beginNamespaceLine + 1)];
+  });
+}
+
+function hasContentsTokens(fileChunk: FileChunk, tokens: TokenBufferArrays): boolean {
+  for (let i = 0; i < tokens.size; i += 1) {
+    const start: number = tokens.starts[i];
+    if (tokens.types[i] !== antlr4.Token.EOF && start >= fileChunk.contentsStart && start < fileChunk.contentsEnd) {
+      return true;
+    }
+  }
+  return false;
+}
+
+function tokenBufferFrom(tokens: TokenBufferArrays): TokenBuffer {
+  const tokenBuffer = new TokenBuffer(tokens.size);
+  tokenBuffer.appendFrom(tokens);
+  return tokenBuffer;
+}
+
+/**
+ * The file and line of a syntax error found parsing a file chunk. An error at the End Namespace that closes the chunk,
+ * such as an entity cut short, is on the line after the file in the concatenation of all files, so is put on the
+ * file's last line rather than the first line of the next file.
+ */
+function fileMapFor(fileChunk: FileChunk, failure: ValidationFailure): FileMap | null {
+  if (fileChunk.file == null || failure.sourceMap == null) return null;
+  const lineNumber: number = failure.sourceMap.line - fileChunk.chunk.line;
+  return { fullPath: fileChunk.file.fullPath, lineNumber: Math.max(1, Math.min(lineNumber, fileChunk.file.lineCount)) };
+}
+
+function isTerminalOfType(child: any, tokenType: number): boolean {
+  return child instanceof TerminalNode && child.symbol != null && child.symbol.type === tokenType;
+}
+
+/**
+ * Merges the metaEd() parse trees of the files of each file set into a single tree, the same as parsing all the files
+ * concatenated: one namespace per file set, with the Begin Namespace header of its first file, then the children
+ * between header and End Namespace of each of its files in order, then the End Namespace of its last file.
+ * The tree of the last file parsed becomes the root.
+ */
+export function mergeFileParseTrees(fileSetTrees: any[][]): any | null {
+  const namespaces: any[] = [];
+  let root: any = null;
+
+  fileSetTrees.forEach((trees: any[]) => {
+    const fileNamespaces: any[] = trees
+      .filter((tree: any) => tree != null)
+      .map((tree: any) => {
+        root = tree;
+        return tree.namespace(0);
+      })
+      .filter((namespace: any) => namespace != null && namespace.children != null);
+    if (fileNamespaces.length === 0) return;
+
+    const children: any[] = [];
+    fileNamespaces.forEach((namespace: any, index: number) => {
+      const headerEnd: number = namespace.children.indexOf(namespace.namespaceType()) + 1;
+      const hasEndNamespace: boolean = isTerminalOfType(
+        namespace.children[namespace.children.length - 1],
+        MetaEdGrammar.END_NAMESPACE,
+      );
+      const bodyEnd: number = hasEndNamespace ? namespace.children.length - 1 : namespace.children.length;
+      if (index === 0) children.push(...namespace.children.slice(0, headerEnd));
+      children.push(...namespace.children.slice(headerEnd, bodyEnd));
+      if (index === fileNamespaces.length - 1) children.push(...namespace.children.slice(bodyEnd));
+    });
+
+    const merged: any = fileNamespaces[0];
+    children.forEach((child: any) => {
+      child.parentCtx = merged;
+    });
+    merged.children = children;
+    merged.stop = fileNamespaces[fileNamespaces.length - 1].stop;
+    namespaces.push(merged);
+  });
+
+  if (root == null) return null;
+  namespaces.forEach((namespace: any) => {
+    namespace.parentCtx = root;
+  });
+  root.children = namespaces;
+  if (namespaces.length > 0) {
+    root.start = namespaces[0].start;
+    root.stop = namespaces[namespaces.length - 1].stop;
+  }
+  return root;
+}
+
+/**
+ * Parses each file of each file set on its own and merges the parse trees into one. Files are lexed and parsed in
+ * batches on up to parallelism worker threads, which post back their encoded parse trees to be rebuilt on this thread.
+ * Large files are only lexed on worker threads, and buildMetaEdByEntity() parses each a top level entity at a time,
+ * on worker threads of its own. Workers warm their DFAs from the DFA cache file, if given. Token lines are those of
+ * the concatenation of all files, as for a parse of getAllContents(), so the file index maps source positions back
+ * to files as before. A file without any tokens of its own is left out of the tree, unless its file set has nothing
+ * else, which the concatenated parse reports as an error.
+ *
+ * Syntax errors, those of the lexer first, go to the given listener file by file, and are given the file map of the
+ * file they were found in, so an error is never put on a neighbouring file, as it can be when parsing the
+ * concatenation.
+ *
+ * If resyncOnEntityError is set, a syntax error in a top level entity is reported once, and parsing picks up again
+ * at the next top level entity, as MetaEdErrorStrategy does.
+ */
+export async function buildMetaEdByFile(
+  metaEdErrorListener: MetaEdErrorListener,
+  fileSets: FileSet[],
+  fileIndex: FileIndex,
+  parallelism: number = os.cpus().length,
+  resyncOnEntityError: boolean = false,
+  dfaCacheFilePath: string | null = null,
+): Promise<MetaEdGrammar | null> {
+  const fileChunks: FileChunk[][] = fileChunksFor(fileSets, fileIndex);
+  const isLarge = (fileChunk: FileChunk): boolean => fileChunk.chunk.text.length > ENTITY_SLICED_FILE_LENGTH;
+  const smallFileChunks: FileChunk[] = fileChunks.flat().filter((fileChunk: FileChunk) => !isLarge(fileChunk));
+  const largeFileChunks: FileChunk[] = fileChunks.flat().filter(isLarge);
+
+  // one for every file, so equal names have the same symbol id throughout the merged tree
+  const symbolTable = new SymbolTable();
+  const [parsedChunks, lexedChunks] = await Promise.all([
+    parseChunksInParallel(
+      smallFileChunks.map((fileChunk: FileChunk) => fileChunk.chunk),
+      parallelism,
+      resyncOnEntityError,
+      dfaCacheFilePath,
+      symbolTable,
+    ),
+    lexChunksInParallel(largeFileChunks.map((fileChunk: FileChunk) => fileChunk.chunk), parallelism, dfaCacheFilePath),
+  ]);
+  const parsedChunkOf: Map<FileChunk, ParsedChunk> = new Map(
+    smallFileChunks.map((fileChunk: FileChunk, index: number) => [fileChunk, parsedChunks[index]]),
+  );
+  const lexedChunkOf: Map<FileChunk, LexedChunk> = new Map(
+    largeFileChunks.map((fileChunk: FileChunk, index: number) => [fileChunk, lexedChunks[index]]),
+  );
+  const tokensOf = (fileChunk: FileChunk): TokenBufferArrays => {
+    const parsedChunk: ParsedChunk | undefined = parsedChunkOf.get(fileChunk);
+    return parsedChunk != null ? parsedChunk.tokens : (lexedChunkOf.get(fileChunk) as LexedChunk).tokens;
+  };
+
+  const fileSetTrees: any[][] = [];
+  // eslint-disable-next-line no-restricted-syntax
+  for (const setChunks of fileChunks) {
+    let toParse: FileChunk[] = setChunks.filter((fileChunk: FileChunk) => hasContentsTokens(fileChunk, tokensOf(fileChunk)));
+    if (toParse.length === 0) toParse = [setChunks[0]];
+
+    const trees: any[] = [];
+    // eslint-disable-next-line no-restricted-syntax
+    for (const fileChunk of toParse) {
+      const failureCount: number = metaEdErrorListener.messageCollection.length;
+      const parsedChunk: ParsedChunk | undefined = parsedChunkOf.get(fileChunk);
+      if (parsedChunk != null) {
+        metaEdErrorListener.reportFailures(parsedChunk.failures);
+        trees.push(parsedChunk.tree);
+      } else {
+        const lexedChunk: LexedChunk = lexedChunkOf.get(fileChunk) as LexedChunk;
+        // such as running out of error budget on a file that is not MetaEd at all
+        metaEdErrorListener.reportFailures(lexedChunk.failures);
+        trees.push(
+          await buildMetaEdByEntity(
+            metaEdErrorListener,
+            fileChunk.chunk.text,
+            tokenBufferFrom(lexedChunk.tokens),
+            parallelism,
+            dfaCacheFilePath,
+            resyncOnEntityError,
+            symbolTable,
+          ),
+        );
+      }
+      metaEdErrorListener.messageCollection.slice(failureCount).forEach((failure: ValidationFailure) => {
+        failure.fileMap = fileMapFor(fileChunk, failure);
+      });
+    }
+    fileSetTrees.push(trees);
+  }
+  return mergeFileParseTrees(fileSetTrees);
+}
+
+/**
+ * Builds the parse tree of all loaded files with buildMetaEdByFile() and adds their syntax errors to the state, in
+ * a single parse of each file. This takes the place of both validateSyntax and buildParseTree(), which parsed every
+ * file twice, once on its own for its syntax errors and again concatenated with all the others for the parse tree.
+ */
+export async function buildParseTreeByFile(state: State, parallelism?: number): Promise<void> {
+  if (state.fileIndex == null) {
+    Logger.error('BuildParseTreeByFile: no file index loaded');
+    return;
+  }
+
+  const validationFailures: ValidationFailure[] = [];
+  const errorListener = new MetaEdErrorListener(validationFailures, 'BuildParseTreeByFile - MetaEdErrorListener');
+  const parseTree = await buildMetaEdByFile(
+    errorListener,
+    state.loadedFileSet,
+    state.fileIndex,
+    parallelism,
+    state.pipelineOptions.resyncOnEntityError,
+    state.pipelineOptions.dfaCacheFilePath,
+  );
+  state.validationFailure.push(...validationFailures);
+
+  if (parseTree == null) {
+    Logger.error('BuildParseTreeByFile: no parse tree built for loaded files');
+  }
+
+  state.parseTree = parseTree;
+}
@@ -0,0 +1,255 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import { Worker } from 'worker_threads';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { BaseLexer } from './gen/BaseLexer';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdLexer } from './MetaEdLexer';
+import { TokenBuffer, TokenBufferArrays } from './TokenBuffer';
+
+const CHARACTER_LINE_FEED = 10;
+const CHARACTER_DOUBLE_QUOTE = 34;
+const CHARACTER_SLASH = 47;
+
+// Below this many characters per chunk, starting a worker costs more than lexing the chunk inline
+const MIN_CHUNK_LENGTH = 64 * 1024;
+
+// Compiled alongside this module in dist, but not present when running from TypeScript source
+const WORKER_FILE_PATH = path.join(__dirname, 'ChunkedLexerWorker.js');
+
+/**
+ * The keywords that start a namespace or a top level entity, which only ever appear at the start of a line
+ */
+export const topLevelKeywords: string[] = [
+  BaseLexer.ABSTRACT_ENTITY,
+  BaseLexer.ASSOCIATION,
+  BaseLexer.BEGIN_NAMESPACE,
+  BaseLexer.END_NAMESPACE,
+  BaseLexer.CHOICE,
+  BaseLexer.COMMON,
+  BaseLexer.DESCRIPTOR,
+  BaseLexer.DOMAIN,
+  BaseLexer.DOMAIN_ENTITY,
+  BaseLexer.ENUMERATION,
+  BaseLexer.INLINE_COMMON,
+  BaseLexer.INTERCHANGE,
+  BaseLexer.SHARED_DECIMAL,
+  BaseLexer.SHARED_INTEGER,
+  BaseLexer.SHARED_SHORT,
+  BaseLexer.SHARED_STRING,
+  BaseLexer.SUBDOMAIN,
+].map((tokenType: number) => {
+  const literalName: string = BaseLexer.prototype.literalNames[tokenType];
+  return literalName.substring(1, literalName.length - 1);
+});
+
+/**
+ * A piece of MetaEd text that can be lexed on its own. Offset is the index of the chunk's first character in the
+ * whole text, and line is the line number it starts on.
+ */
+export interface Chunk {
+  text: string;
+  offset: number;
+  line: number;
+}
+
+const isAlphanumeric = (c: number): boolean => (c >= 48 && c <= 57) || (c >= 65 && c <= 90) || (c >= 97 && c <= 122);
+
+function startsWithTopLevelKeyword(text: string, index: number): boolean {
+  return topLevelKeywords.some(
+    (keyword: string) => text.startsWith(keyword, index) && !isAlphanumeric(text.charCodeAt(index + keyword.length)),
+  );
+}
+
+/**
+ * Splits MetaEd text into at most chunkCount chunks of roughly equal length. Chunks only ever start at a top level
+ * keyword at the start of a line, outside of any TEXT literal or LINE_COMMENT. Every token other than TEXT and
+ * LINE_COMMENT ends before a line feed, so the lexer is always between tokens there, and lexing the chunks separately
+ * gives the same tokens as lexing the whole text.
+ */
+export function splitIntoChunks(text: string, chunkCount: number): Chunk[] {
+  const chunks: Chunk[] = [];
+  const targetLength: number = Math.ceil(text.length / Math.max(chunkCount, 1));
+  let chunkOffset = 0;
+  let chunkLine = 1;
+  let line = 1;
+  let inText = false;
+  let inComment = false;
+
+  for (let i = 0; i < text.length; i += 1) {
+    const c: number = text.charCodeAt(i);
+    if (c === CHARACTER_LINE_FEED) {
+      line += 1;
+      inComment = false;
+      const nextLineStart: number = i + 1;
+      if (
+        !inText &&
+        nextLineStart - chunkOffset >= targetLength &&
+        chunks.length < chunkCount - 1 &&
+        startsWithTopLevelKeyword(text, nextLineStart)
+      ) {
+        chunks.push({ text: text.substring(chunkOffset, nextLineStart), offset: chunkOffset, line: chunkLine });
+        chunkOffset = nextLineStart;
+        chunkLine = line;
+      }
+    } else if (inComment) {
+      // nothing in a comment matters until the line feed
+    } else if (c === CHARACTER_DOUBLE_QUOTE) {
+      // a doubled quote inside TEXT toggles out and straight back in
+      inText = !inText;
+    } else if (!inText && c === CHARACTER_SLASH && text.charCodeAt(i + 1) === CHARACTER_SLASH) {
+      inComment = true;
+    }
+  }
+  chunks.push({ text: text.substring(chunkOffset), offset: chunkOffset, line: chunkLine });
+  return chunks;
+}
+
+/**
+ * The tokens of a lexed chunk, and the lexer errors found lexing it
+ */
+export interface LexedChunk {
+  tokens: TokenBufferArrays;
+  failures: ValidationFailure[];
+}
+
+/**
+ * The work for a chunked lexer worker: the chunks to lex
+ */
+export interface ChunkLexWork {
+  chunks: Chunk[];
+  dfaCacheFilePath: string | null;
+}
+
+/**
+ * Lexes a single chunk into a TokenBuffer, with start and stop indexes and lines relative to the whole text.
+ * The buffer ends with the chunk's EOF token. Lexer errors, such as running out of error budget, go to the error
+ * listener if given.
+ */
+export function lexChunk(chunk: Chunk, metaEdErrorListener: MetaEdErrorListener | null = null): TokenBuffer {
+  const tokenBuffer = new TokenBuffer(Math.ceil(chunk.text.length / 8));
+  const lexer: any = new MetaEdLexer(new antlr4.InputStream(chunk.text));
+  lexer.removeErrorListeners();
+  if (metaEdErrorListener != null) lexer.addErrorListener(metaEdErrorListener);
+  lexer._interp.line = chunk.line;
+  for (;;) {
+    const token: any = lexer.nextToken();
+    tokenBuffer.add(token.type, token.start + chunk.offset, token.stop + chunk.offset, token.line, token.column);
+    if (token.type === antlr4.Token.EOF) break;
+  }
+  return tokenBuffer;
+}
+
+/**
+ * Lexes a single chunk as lexChunk() does, collecting its lexer errors
+ */
+export function lexChunkWithFailures(chunk: Chunk): LexedChunk {
+  const failures: ValidationFailure[] = [];
+  return { tokens: lexChunk(chunk, new MetaEdErrorListener(failures)), failures };
+}
+
+/**
+ * Whether lexing a chunk stopped before its end, having used up its error budget
+ */
+function endedEarly(chunk: Chunk, tokens: TokenBufferArrays): boolean {
+  return tokens.starts[tokens.size - 1] < chunk.offset + chunk.text.length;
+}
+
+/**
+ * Concatenates chunk token buffers in order, keeping only the EOF token of the last chunk.
+ * Token indexes are positions in the buffer, so they are renumbered by the concatenation.
+ * If lexing a chunk stopped before its end, having used up its error budget, the result ends with that chunk.
+ */
+export function mergeChunkTokens(chunks: Chunk[], chunkTokens: TokenBufferArrays[]): TokenBuffer {
+  const totalSize: number = chunkTokens.reduce((sum: number, tokens: TokenBufferArrays) => sum + tokens.size, 0);
+  const result = new TokenBuffer(totalSize);
+  for (let index = 0; index < chunkTokens.length; index += 1) {
+    const tokens: TokenBufferArrays = chunkTokens[index];
+    if (index === chunkTokens.length - 1 || endedEarly(chunks[index], tokens)) {
+      result.appendFrom(tokens);
+      break;
+    }
+    result.appendFrom(tokens, tokens.size - 1);
+  }
+  return result;
+}
+
+async function lexChunksInWorker(work: ChunkLexWork): Promise<LexedChunk[]> {
+  return new Promise((resolve, reject) => {
+    const worker = new Worker(WORKER_FILE_PATH, { workerData: work });
+    worker.once('message', resolve);
+    worker.once('error', reject);
+    worker.once('exit', (exitCode: number) => {
+      if (exitCode !== 0) reject(new Error(`Lexer worker stopped with exit code ${exitCode}`));
+    });
+  });
+}
+
+/**
+ * Splits chunks in order into at most batchCount runs of roughly equal total length
+ */
+export function batchesOf(chunks: Chunk[], batchCount: number): Chunk[][] {
+  const totalLength: number = chunks.reduce((sum: number, chunk: Chunk) => sum + chunk.text.length, 0);
+  const targetLength: number = totalLength / batchCount;
+  const batches: Chunk[][] = [[]];
+  let batchLength = 0;
+  chunks.forEach((chunk: Chunk) => {
+    if (batchLength >= targetLength && batches.length < batchCount) {
+      batches.push([]);
+      batchLength = 0;
+    }
+    batches[batches.length - 1].push(chunk);
+    batchLength += chunk.text.length;
+  });
+  return batches;
+}
+
+/**
+ * Lexes each chunk into its own token arrays and lexer errors, in batches on up to parallelism worker threads, which
+ * warm their DFAs from the DFA cache file, if given. Small inputs, or a parallelism of one, are lexed on the calling
+ * thread. The result for each chunk is the same as lexChunkWithFailures().
+ */
+export async function lexChunksInParallel(
+  chunks: Chunk[],
+  parallelism: number = os.cpus().length,
+  dfaCacheFilePath: string | null = null,
+): Promise<LexedChunk[]> {
+  const totalLength: number = chunks.reduce((sum: number, chunk: Chunk) => sum + chunk.text.length, 0);
+  const batchCount: number = Math.min(parallelism, chunks.length, Math.ceil(totalLength / MIN_CHUNK_LENGTH));
+  if (batchCount <= 1 || !fs.existsSync(WORKER_FILE_PATH)) return chunks.map(lexChunkWithFailures);
+  const batchResults: LexedChunk[][] = await Promise.all(
+    batchesOf(chunks, batchCount).map((batch: Chunk[]) => lexChunksInWorker({ chunks: batch, dfaCacheFilePath })),
+  );
+  return batchResults.flat();
+}
+
+/**
+ * Lexes MetaEd text into a TokenBuffer, splitting it into chunks at top level keywords and lexing the chunks
+ * on up to parallelism worker threads. Small texts, or a parallelism of one, are lexed on the calling thread.
+ * The result is the same as lexing the whole text with a single MetaEdLexer. Lexer errors of the chunks that made
+ * it into the result go to the error listener if given. Worker threads warm their DFAs from the DFA cache file, if given.
+ */
+export async function lexInParallel(
+  text: string,
+  parallelism: number = os.cpus().length,
+  metaEdErrorListener: MetaEdErrorListener | null = null,
+  dfaCacheFilePath: string | null = null,
+): Promise<TokenBuffer> {
+  const chunkCount: number = Math.min(parallelism, Math.ceil(text.length / MIN_CHUNK_LENGTH));
+  const chunks: Chunk[] = splitIntoChunks(text, chunkCount);
+  const lexedChunks: LexedChunk[] = await lexChunksInParallel(chunks, parallelism, dfaCacheFilePath);
+  // as for the tokens, only the errors up to the first chunk that ended early
+  for (let index = 0; metaEdErrorListener != null && index < lexedChunks.length; index += 1) {
+    metaEdErrorListener.reportFailures(lexedChunks[index].failures);
+    if (endedEarly(chunks[index], lexedChunks[index].tokens)) break;
+  }
+  return mergeChunkTokens(chunks, lexedChunks.map((lexedChunk: LexedChunk) => lexedChunk.tokens));
+}
@@ -0,0 +1,32 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { parentPort, workerData } from 'worker_threads';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { Chunk, ChunkLexWork, LexedChunk, lexChunk } from './ChunkedLexer';
+import { loadDfaCache } from './DfaCache';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+
+// Worker thread entry point for lexChunksInParallel: lexes the chunks in workerData and posts back their token arrays,
+// trimmed to size and transferred rather than copied, along with their lexer errors
+const { chunks, dfaCacheFilePath } = workerData as ChunkLexWork;
+if (dfaCacheFilePath != null) loadDfaCache(dfaCacheFilePath);
+
+const lexedChunks: LexedChunk[] = chunks.map((chunk: Chunk) => {
+  const failures: ValidationFailure[] = [];
+  return { tokens: lexChunk(chunk, new MetaEdErrorListener(failures)).trimmed(), failures };
+});
+if (parentPort != null) {
+  parentPort.postMessage(
+    lexedChunks,
+    lexedChunks.flatMap(({ tokens }: LexedChunk) => [
+      tokens.types.buffer,
+      tokens.starts.buffer,
+      tokens.stops.buffer,
+      tokens.lines.buffer,
+      tokens.columns.buffer,
+    ]),
+  );
+}
@@ -0,0 +1,127 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import { Worker } from 'worker_threads';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { batchesOf, Chunk, lexChunk } from './ChunkedLexer';
+import { CompactTokenStream } from './CompactTokenStream';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdLexer } from './MetaEdLexer';
+import { buildMetaEdFromTokens } from './ParseTreeBuilder';
+import { decodeParseTree, EncodedParseTree, encodeParseTree } from './ParseTreeEncoding';
+import { SymbolTable } from './SymbolTable';
+import { TokenBuffer, TokenBufferArrays } from './TokenBuffer';
+
+// Below this many characters per worker, starting a worker costs more than parsing the chunks inline
+const MIN_BATCH_LENGTH = 32 * 1024;
+
+// Compiled alongside this module in dist, but not present when running from TypeScript source
+const WORKER_FILE_PATH = path.join(__dirname, 'ChunkedParserWorker.js');
+
+/**
+ * The work for a chunked parser worker: the chunks to lex and parse with metaEd()
+ */
+export interface ChunkParseWork {
+  chunks: Chunk[];
+  dfaCacheFilePath: string | null;
+  resyncOnEntityError: boolean;
+}
+
+/**
+ * A chunk lexed and parsed with metaEd(): its tokens, its syntax errors, those of the lexer first, and its parse tree
+ */
+export interface ParsedChunk {
+  tokens: TokenBuffer;
+  failures: ValidationFailure[];
+  tree: MetaEdGrammar;
+}
+
+/**
+ * A ParsedChunk as a chunked parser worker posts it back, with the token arrays trimmed to size and the parse tree
+ * encoded
+ */
+export interface EncodedParsedChunk {
+  tokens: TokenBufferArrays;
+  failures: ValidationFailure[];
+  tree: EncodedParseTree;
+}
+
+/**
+ * Lexes and parses a single chunk that starts at offset zero with metaEd(), collecting its syntax errors. ID names
+ * are interned in the given symbol table, or not at all if it is null.
+ */
+export function parseChunk(chunk: Chunk, resyncOnEntityError: boolean, symbolTable: SymbolTable | null): ParsedChunk {
+  const failures: ValidationFailure[] = [];
+  const errorListener = new MetaEdErrorListener(failures);
+  const tokens: TokenBuffer = lexChunk(chunk, errorListener);
+  const tree: MetaEdGrammar = buildMetaEdFromTokens(errorListener, chunk.text, tokens, resyncOnEntityError, symbolTable);
+  return { tokens, failures, tree };
+}
+
+/**
+ * Encodes a parsed chunk to be posted back from a worker thread
+ */
+export function encodeParsedChunk({ tokens, failures, tree }: ParsedChunk): EncodedParsedChunk {
+  return { tokens: tokens.trimmed(), failures, tree: encodeParseTree(tree, 0, tokens.size) };
+}
+
+/**
+ * Rebuilds the parse tree of a chunk parsed on another thread, with tokens that intern their names in the given
+ * symbol table
+ */
+export function decodeParsedChunk(chunk: Chunk, encoded: EncodedParsedChunk, symbolTable: SymbolTable): ParsedChunk {
+  const tokens = new TokenBuffer(encoded.tokens.size);
+  tokens.appendFrom(encoded.tokens);
+  const lexer = new MetaEdLexer(new antlr4.InputStream(chunk.text));
+  lexer.symbolTable = symbolTable;
+  const tokenStream = new CompactTokenStream(lexer, tokens);
+  const tree: MetaEdGrammar = decodeParseTree(encoded.tree, new MetaEdGrammar(tokenStream), tokenStream);
+  return { tokens, failures: encoded.failures, tree };
+}
+
+async function parseChunksInWorker(work: ChunkParseWork): Promise<EncodedParsedChunk[]> {
+  return new Promise((resolve, reject) => {
+    const worker = new Worker(WORKER_FILE_PATH, { workerData: work });
+    worker.once('message', resolve);
+    worker.once('error', reject);
+    worker.once('exit', (exitCode: number) => {
+      if (exitCode !== 0) reject(new Error(`Parser worker stopped with exit code ${exitCode}`));
+    });
+  });
+}
+
+/**
+ * Lexes and parses each chunk with metaEd(), in batches on up to parallelism worker threads, which warm their DFAs
+ * from the DFA cache file, if given. Workers post back encoded parse trees, which are rebuilt on this thread. Small
+ * inputs, or a parallelism of one, are parsed on the calling thread. Either way, the result for each chunk is the
+ * same as parseChunk() with the given symbol table.
+ */
+export async function parseChunksInParallel(
+  chunks: Chunk[],
+  parallelism: number = os.cpus().length,
+  resyncOnEntityError: boolean = false,
+  dfaCacheFilePath: string | null = null,
+  symbolTable: SymbolTable = new SymbolTable(),
+): Promise<ParsedChunk[]> {
+  const totalLength: number = chunks.reduce((sum: number, chunk: Chunk) => sum + chunk.text.length, 0);
+  const batchCount: number = Math.min(parallelism, chunks.length, Math.ceil(totalLength / MIN_BATCH_LENGTH));
+  if (batchCount <= 1 || !fs.existsSync(WORKER_FILE_PATH)) {
+    return chunks.map((chunk: Chunk) => parseChunk(chunk, resyncOnEntityError, symbolTable));
+  }
+  const batchResults: EncodedParsedChunk[][] = await Promise.all(
+    batchesOf(chunks, batchCount).map((batch: Chunk[]) =>
+      parseChunksInWorker({ chunks: batch, dfaCacheFilePath, resyncOnEntityError }),
+    ),
+  );
+  const encodedChunks: EncodedParsedChunk[] = batchResults.flat();
+  return encodedChunks.map((encoded: EncodedParsedChunk, index: number) =>
+    decodeParsedChunk(chunks[index], encoded, symbolTable),
+  );
+}
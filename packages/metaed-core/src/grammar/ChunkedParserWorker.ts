@@ -0,0 +1,32 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { parentPort, workerData } from 'worker_threads';
+import { Chunk } from './ChunkedLexer';
+import { ChunkParseWork, EncodedParsedChunk, encodeParsedChunk, parseChunk } from './ChunkedParser';
+import { loadDfaCache } from './DfaCache';
+
+// Worker thread entry point for parseChunksInParallel: lexes and parses the chunks in workerData and posts back their
+// token arrays and encoded parse trees, transferred rather than copied, along with their syntax errors. Names are not
+// interned here, as the trees are decoded into tokens of the run's symbol table on the calling thread.
+const { chunks, dfaCacheFilePath, resyncOnEntityError } = workerData as ChunkParseWork;
+if (dfaCacheFilePath != null) loadDfaCache(dfaCacheFilePath);
+
+const parsedChunks: EncodedParsedChunk[] = chunks.map((chunk: Chunk) =>
+  encodeParsedChunk(parseChunk(chunk, resyncOnEntityError, null)),
+);
+if (parentPort != null) {
+  parentPort.postMessage(
+    parsedChunks,
+    parsedChunks.flatMap(({ tokens, tree }: EncodedParsedChunk) => [
+      tokens.types.buffer,
+      tokens.starts.buffer,
+      tokens.stops.buffer,
+      tokens.lines.buffer,
+      tokens.columns.buffer,
+      tree.nodes.buffer,
+    ]),
+  );
+}
@@ -0,0 +1,416 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable max-classes-per-file */
+import antlr4 from '@edfi/antlr4/index';
+import { ErrorNodeImpl } from '@edfi/antlr4/tree/Tree';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { twoStageParse } from './ParseTreeBuilder';
+import { contextClassesByRuleIndex } from './ParseTreeEncoding';
+import { TokenBuffer } from './TokenBuffer';
+
+const DEFAULT_INITIAL_CAPACITY = 1024;
+
+const NO_NODE = -1;
+const NO_TOKEN = -1;
+
+// The rule index of a terminal node
+const TERMINAL = -1;
+
+function grown(array: Int32Array, capacity: number): Int32Array {
+  const result = new Int32Array(capacity);
+  result.set(array);
+  return result;
+}
+
+/**
+ * A token the error strategy conjured up while recovering, which is not in the token buffer
+ */
+interface ConjuredToken {
+  type: number;
+  text: string;
+  line: number;
+  column: number;
+}
+
+/**
+ * A token of a CompactParseTree, made on demand like the tokens of CompactTokenStream, with the fields of an ANTLR
+ * token that parse tree consumers use
+ */
+export class CompactToken {
+  tree: CompactParseTree;
+
+  tokenIndex: number;
+
+  type: number;
+
+  line: number;
+
+  column: number;
+
+  conjuredText: string | null;
+
+  constructor(tree: CompactParseTree, tokenIndex: number, conjured: ConjuredToken | null = null) {
+    this.tree = tree;
+    this.tokenIndex = tokenIndex;
+    if (conjured == null) {
+      this.type = tree.tokens.types[tokenIndex];
+      this.line = tree.tokens.lines[tokenIndex];
+      this.column = tree.tokens.columns[tokenIndex];
+      this.conjuredText = null;
+    } else {
+      this.type = conjured.type;
+      this.line = conjured.line;
+      this.column = conjured.column;
+      this.conjuredText = conjured.text;
+    }
+  }
+
+  get text(): string {
+    if (this.conjuredText != null) return this.conjuredText;
+    if (this.type === antlr4.Token.EOF) return '<EOF>';
+    const { starts, stops } = this.tree.tokens;
+    return this.tree.text.substring(starts[this.tokenIndex], stops[this.tokenIndex] + 1);
+  }
+}
+
+/**
+ * CompactParseTree is a MetaEdGrammar parse tree stored as parallel primitive arrays rather than as context objects.
+ * Entry i is node i: its rule index, or TERMINAL for a terminal node, its parent, first child and next sibling,
+ * its start and stop token indexes into the token buffer the tree was parsed from, which for a terminal node are
+ * both its token, and whether it is flagged: for a rule node, as having had a recognition exception, and for a
+ * terminal node, as an error node. Nodes are numbered in the order their rules are exited, so the root is the last.
+ *
+ * A node takes 25 bytes, where a generated context takes an object with a children array, and each terminal
+ * node another object. Token text is read from the parsed text only when asked for. Nodes are navigated with
+ * CompactParseTreeNode, which has the same accessors as the generated context classes.
+ */
+export class CompactParseTree {
+  text: string;
+
+  tokens: TokenBuffer;
+
+  ruleIndexes: Int32Array;
+
+  parents: Int32Array;
+
+  firstChildren: Int32Array;
+
+  nextSiblings: Int32Array;
+
+  startTokens: Int32Array;
+
+  stopTokens: Int32Array;
+
+  flagged: Uint8Array;
+
+  conjuredTokens: Map<number, ConjuredToken> = new Map();
+
+  size: number;
+
+  constructor(text: string, tokens: TokenBuffer, initialCapacity: number = DEFAULT_INITIAL_CAPACITY) {
+    const capacity: number = Math.max(initialCapacity, 1);
+    this.text = text;
+    this.tokens = tokens;
+    this.ruleIndexes = new Int32Array(capacity);
+    this.parents = new Int32Array(capacity);
+    this.firstChildren = new Int32Array(capacity);
+    this.nextSiblings = new Int32Array(capacity);
+    this.startTokens = new Int32Array(capacity);
+    this.stopTokens = new Int32Array(capacity);
+    this.flagged = new Uint8Array(capacity);
+    this.size = 0;
+  }
+
+  grow() {
+    const capacity: number = this.ruleIndexes.length * 2;
+    this.ruleIndexes = grown(this.ruleIndexes, capacity);
+    this.parents = grown(this.parents, capacity);
+    this.firstChildren = grown(this.firstChildren, capacity);
+    this.nextSiblings = grown(this.nextSiblings, capacity);
+    this.startTokens = grown(this.startTokens, capacity);
+    this.stopTokens = grown(this.stopTokens, capacity);
+    const flagged = new Uint8Array(capacity);
+    flagged.set(this.flagged);
+    this.flagged = flagged;
+  }
+
+  /**
+   * Removes all nodes, as when the parse they came from is started over
+   */
+  clear() {
+    this.size = 0;
+    this.conjuredTokens.clear();
+  }
+
+  addNode(ruleIndex: number, startToken: number, stopToken: number, isFlagged: boolean): number {
+    if (this.size === this.ruleIndexes.length) this.grow();
+    const index: number = this.size;
+    this.ruleIndexes[index] = ruleIndex;
+    this.parents[index] = NO_NODE;
+    this.firstChildren[index] = NO_NODE;
+    this.nextSiblings[index] = NO_NODE;
+    this.startTokens[index] = startToken;
+    this.stopTokens[index] = stopToken;
+    this.flagged[index] = isFlagged ? 1 : 0;
+    this.size += 1;
+    return index;
+  }
+
+  /**
+   * Adds a terminal node for an ANTLR terminal node, returning its index
+   */
+  addTerminal(terminalNode: any): number {
+    const token: any = terminalNode.symbol;
+    const isError: boolean = terminalNode instanceof ErrorNodeImpl;
+    if (token.tokenIndex >= 0) return this.addNode(TERMINAL, token.tokenIndex, token.tokenIndex, isError);
+
+    const index: number = this.addNode(TERMINAL, NO_TOKEN, NO_TOKEN, isError);
+    this.conjuredTokens.set(index, { type: token.type, text: token.text, line: token.line, column: token.column });
+    return index;
+  }
+
+  /**
+   * Adds a rule node for an ANTLR rule context whose children have already been added, returning its index
+   */
+  addRule(context: any, childIndexes: number[]): number {
+    const startToken: number = context.start == null ? NO_TOKEN : context.start.tokenIndex;
+    const stopToken: number = context.stop == null ? NO_TOKEN : context.stop.tokenIndex;
+    const index: number = this.addNode(context.ruleIndex, startToken, stopToken, context.exception != null);
+    childIndexes.forEach((childIndex: number, position: number) => {
+      this.parents[childIndex] = index;
+      if (position === 0) {
+        this.firstChildren[index] = childIndex;
+      } else {
+        this.nextSiblings[childIndexes[position - 1]] = childIndex;
+      }
+    });
+    return index;
+  }
+
+  /**
+   * The token type of a terminal node
+   */
+  tokenTypeOf(node: number): number {
+    const tokenIndex: number = this.startTokens[node];
+    if (tokenIndex !== NO_TOKEN) return this.tokens.types[tokenIndex];
+    const conjured: ConjuredToken | undefined = this.conjuredTokens.get(node);
+    return conjured == null ? antlr4.Token.INVALID_TYPE : conjured.type;
+  }
+
+  tokenOf(node: number, tokenIndex: number): CompactToken | null {
+    if (tokenIndex !== NO_TOKEN) return new CompactToken(this, tokenIndex);
+    const conjured: ConjuredToken | undefined = this.conjuredTokens.get(node);
+    return conjured == null ? null : new CompactToken(this, NO_TOKEN, conjured);
+  }
+
+  /**
+   * The root node, or null if the tree is empty
+   */
+  root(): CompactParseTreeNode | null {
+    return this.size === 0 ? null : new CompactParseTreeNode(this, this.size - 1);
+  }
+
+  /**
+   * The tree in LISP form, the same as toStringTree() of the generated context tree it was built from
+   */
+  toStringTree(): string {
+    const root: CompactParseTreeNode | null = this.root();
+    return root == null ? '' : root.toStringTree();
+  }
+}
+
+// For each rule index, whether each generated accessor of its context class returns a list when called without an
+// index, found by calling it on an empty context
+const returnsListByRuleIndex: Map<string, boolean>[] = [];
+
+function accessorReturnsList(ruleIndex: number, accessorName: string): boolean {
+  if (returnsListByRuleIndex[ruleIndex] == null) returnsListByRuleIndex[ruleIndex] = new Map();
+  const returnsList: Map<string, boolean> = returnsListByRuleIndex[ruleIndex];
+  let result: boolean | undefined = returnsList.get(accessorName);
+  if (result == null) {
+    const ContextClass: any = ruleIndex === TERMINAL ? null : contextClassesByRuleIndex()[ruleIndex];
+    if (ContextClass == null || typeof ContextClass.prototype[accessorName] !== 'function') {
+      throw new TypeError(`${MetaEdGrammar.prototype.ruleNames[ruleIndex]} has no accessor ${accessorName}`);
+    }
+    result = Array.isArray(new ContextClass(null, null, -1)[accessorName]());
+    returnsList.set(accessorName, result);
+  }
+  return result;
+}
+
+function escapeWhitespace(text: string): string {
+  return text.replace(/\t/g, '\\t').replace(/\n/g, '\\n').replace(/\r/g, '\\r');
+}
+
+/**
+ * A node of a CompactParseTree, made on demand. It answers the same accessors as the generated context class of its
+ * rule, for child rules such as domainEntity() and property(i) and for tokens such as ID(), along with start, stop,
+ * exception, parentCtx, children and getText(), so it can stand in for a context where those are all that is used.
+ * For a terminal node, symbol is its token.
+ */
+export class CompactParseTreeNode {
+  // the generated accessors, added to the prototype below
+  [accessor: string]: any;
+
+  tree: CompactParseTree;
+
+  index: number;
+
+  constructor(tree: CompactParseTree, index: number) {
+    this.tree = tree;
+    this.index = index;
+  }
+
+  get ruleIndex(): number {
+    return this.tree.ruleIndexes[this.index];
+  }
+
+  get isTerminal(): boolean {
+    return this.ruleIndex === TERMINAL;
+  }
+
+  get isErrorNode(): boolean {
+    return this.isTerminal && this.tree.flagged[this.index] === 1;
+  }
+
+  get start(): CompactToken | null {
+    return this.tree.tokenOf(this.index, this.tree.startTokens[this.index]);
+  }
+
+  get stop(): CompactToken | null {
+    return this.tree.tokenOf(this.index, this.tree.stopTokens[this.index]);
+  }
+
+  get symbol(): CompactToken | null {
+    return this.isTerminal ? this.start : null;
+  }
+
+  // only whether there was one, not its details
+  get exception(): boolean | null {
+    return !this.isTerminal && this.tree.flagged[this.index] === 1 ? true : null;
+  }
+
+  get parentCtx(): CompactParseTreeNode | null {
+    const parent: number = this.tree.parents[this.index];
+    return parent === NO_NODE ? null : new CompactParseTreeNode(this.tree, parent);
+  }
+
+  get children(): CompactParseTreeNode[] | null {
+    if (this.isTerminal || this.tree.firstChildren[this.index] === NO_NODE) return null;
+    const result: CompactParseTreeNode[] = [];
+    for (let child = this.tree.firstChildren[this.index]; child !== NO_NODE; child = this.tree.nextSiblings[child]) {
+      result.push(new CompactParseTreeNode(this.tree, child));
+    }
+    return result;
+  }
+
+  getChildCount(): number {
+    let count = 0;
+    if (this.isTerminal) return count;
+    for (let child = this.tree.firstChildren[this.index]; child !== NO_NODE; child = this.tree.nextSiblings[child]) {
+      count += 1;
+    }
+    return count;
+  }
+
+  /**
+   * The i-th child for which isMatch is true, or all of them if i is null
+   */
+  childrenWhere(
+    isMatch: (child: number) => boolean,
+    i: number | null,
+  ): CompactParseTreeNode | CompactParseTreeNode[] | null {
+    const result: CompactParseTreeNode[] = [];
+    if (this.isTerminal) return i == null ? result : null;
+    let matches = 0;
+    for (let child = this.tree.firstChildren[this.index]; child !== NO_NODE; child = this.tree.nextSiblings[child]) {
+      if (isMatch(child)) {
+        if (i == null) {
+          result.push(new CompactParseTreeNode(this.tree, child));
+        } else if (matches === i) {
+          return new CompactParseTreeNode(this.tree, child);
+        }
+        matches += 1;
+      }
+    }
+    return i == null ? result : null;
+  }
+
+  getText(): string {
+    if (this.isTerminal) return (this.symbol as CompactToken).text;
+    const children: CompactParseTreeNode[] | null = this.children;
+    return children == null ? '' : children.map((child: CompactParseTreeNode) => child.getText()).join('');
+  }
+
+  toStringTree(): string {
+    const nodeText: string = escapeWhitespace(
+      this.isTerminal ? (this.symbol as CompactToken).text : MetaEdGrammar.prototype.ruleNames[this.ruleIndex],
+    );
+    const children: CompactParseTreeNode[] | null = this.children;
+    if (children == null) return nodeText;
+    return `(${nodeText} ${children.map((child: CompactParseTreeNode) => child.toStringTree()).join(' ')})`;
+  }
+}
+
+// The generated accessors: one for each rule, for child contexts, and one for each token type, for terminals
+MetaEdGrammar.prototype.ruleNames.forEach((ruleName: string, childRuleIndex: number) => {
+  CompactParseTreeNode.prototype[ruleName] = function ruleAccessor(this: CompactParseTreeNode, i?: number) {
+    const isMatch = (child: number) => this.tree.ruleIndexes[child] === childRuleIndex;
+    if (i != null) return this.childrenWhere(isMatch, i);
+    return this.childrenWhere(isMatch, accessorReturnsList(this.ruleIndex, ruleName) ? null : 0);
+  };
+});
+MetaEdGrammar.prototype.symbolicNames.forEach((tokenName: string | null, tokenType: number) => {
+  if (tokenName == null) return;
+  CompactParseTreeNode.prototype[tokenName] = function tokenAccessor(this: CompactParseTreeNode, i?: number) {
+    const isMatch = (child: number) =>
+      this.tree.ruleIndexes[child] === TERMINAL && this.tree.tokenTypeOf(child) === tokenType;
+    if (i != null) return this.childrenWhere(isMatch, i);
+    return this.childrenWhere(isMatch, accessorReturnsList(this.ruleIndex, tokenName) ? null : 0);
+  };
+});
+
+/**
+ * A parse listener that adds each rule context to a CompactParseTree as the parser exits it, with its children,
+ * then lets go of them. The parser still builds a context tree, but only the contexts of the rules being parsed
+ * keep their children, which are childless contexts and terminals, so the context tree never grows past them.
+ */
+function compactingListener(tree: CompactParseTree): any {
+  const listener: any = new antlr4.tree.ParseTreeListener();
+  listener.exitEveryRule = (context: any) => {
+    const children: any[] = context.children == null ? [] : context.children;
+    const childIndexes: number[] = children.map((child: any) =>
+      child.compactIndex != null ? child.compactIndex : tree.addTerminal(child),
+    );
+    context.compactIndex = tree.addRule(context, childIndexes);
+    context.children = null;
+  };
+  return listener;
+}
+
+/**
+ * Parses MetaEd with metaEd() into a CompactParseTree, in two stages as buildMetaEdTwoStage() does.
+ * The tree is the same as the generated context tree, and syntax errors are the same.
+ */
+export function buildCompactMetaEd(metaEdErrorListener: MetaEdErrorListener, metaEdContents: string): CompactParseTree {
+  const tokenBuffer = new TokenBuffer(Math.ceil(metaEdContents.length / 8));
+  const tree = new CompactParseTree(metaEdContents, tokenBuffer, Math.ceil(metaEdContents.length / 4));
+  const listener: any = compactingListener(tree);
+  twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    (parser: any) => {
+      // the second stage starts the tree over
+      tree.clear();
+      parser.removeParseListeners();
+      parser.addParseListener(listener);
+      return parser.metaEd();
+    },
+    tokenBuffer,
+  );
+  return tree;
+}
@@ -0,0 +1,171 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { TokenBuffer } from './TokenBuffer';
+
+// Direct mapped cache of recently created tokens, so the parser's repeated LT(1) calls for the same token index
+// (entering a rule, then consuming) get the same token object without allocating again
+const FLYWEIGHT_CACHE_SIZE = 16;
+const FLYWEIGHT_CACHE_MASK = FLYWEIGHT_CACHE_SIZE - 1;
+
+/**
+ * CompactTokenStream is an ANTLR4 TokenStream for MetaEdGrammar that keeps its tokens in a TokenBuffer of parallel
+ * primitive arrays instead of as CommonToken objects. Tokens are pulled from the lexer as the parser needs them,
+ * the same as CommonTokenStream, but only their type, indexes and position are kept.
+ *
+ * LA() reads the type array directly. LT() and get() create a token object on demand using the lexer's token factory,
+ * so token text still comes lazily from the char stream. Only default channel tokens are kept, which for BaseLexer
+ * is every token, as WS and LINE_COMMENT are skipped rather than sent to a hidden channel.
+ *
+ * A TokenBuffer that was already filled elsewhere, ending with EOF, can be passed in. The token source is then only
+ * used to create token objects.
+ */
+export class CompactTokenStream {
+  tokenSource: any;
+
+  tokenBuffer: TokenBuffer;
+
+  index: number;
+
+  fetchedEOF: boolean;
+
+  flyweightCache: any[];
+
+  constructor(tokenSource: any, tokenBuffer: TokenBuffer = new TokenBuffer()) {
+    this.tokenSource = tokenSource;
+    this.tokenBuffer = tokenBuffer;
+    this.index = 0;
+    this.fetchedEOF = tokenBuffer.size > 0 && tokenBuffer.types[tokenBuffer.size - 1] === antlr4.Token.EOF;
+    this.flyweightCache = new Array(FLYWEIGHT_CACHE_SIZE);
+  }
+
+  get size(): number {
+    return this.tokenBuffer.size;
+  }
+
+  get sourceName(): string {
+    return this.tokenSource.sourceName;
+  }
+
+  getTokenSource(): any {
+    return this.tokenSource;
+  }
+
+  // mark/release do nothing; the whole token stream is buffered
+  // eslint-disable-next-line class-methods-use-this
+  mark(): number {
+    return 0;
+  }
+
+  // eslint-disable-next-line class-methods-use-this
+  release(_marker: number) {}
+
+  reset() {
+    this.seek(0);
+  }
+
+  seek(index: number) {
+    this.sync(index);
+    this.index = Math.min(index, this.tokenBuffer.size - 1);
+  }
+
+  consume() {
+    if (this.LA(1) === antlr4.Token.EOF) {
+      throw new Error('cannot consume EOF');
+    }
+    if (this.sync(this.index + 1)) this.index += 1;
+  }
+
+  /**
+   * Makes sure token index i is in the buffer, unless EOF comes first. Returns true if it is.
+   */
+  sync(i: number): boolean {
+    while (this.tokenBuffer.size <= i) {
+      if (this.fetchedEOF) return false;
+      this.fetch();
+    }
+    return true;
+  }
+
+  fetch() {
+    const token: any = this.tokenSource.nextToken();
+    if (token.channel !== antlr4.Token.DEFAULT_CHANNEL && token.type !== antlr4.Token.EOF) return;
+    this.tokenBuffer.addToken(token);
+    if (token.type === antlr4.Token.EOF) this.fetchedEOF = true;
+  }
+
+  fill() {
+    while (!this.fetchedEOF) this.fetch();
+  }
+
+  LA(i: number): number {
+    if (i === 0) return 0;
+    const tokenIndex: number = this.indexFor(i);
+    if (tokenIndex < 0) return antlr4.Token.INVALID_TYPE;
+    return this.tokenBuffer.types[tokenIndex];
+  }
+
+  LT(k: number): any {
+    if (k === 0) return null;
+    const tokenIndex: number = this.indexFor(k);
+    if (tokenIndex < 0) return null;
+    return this.get(tokenIndex);
+  }
+
+  /**
+   * The token index of lookahead k, or -1 if k is before the start of the stream
+   */
+  indexFor(k: number): number {
+    if (k < 0) return this.index + k;
+    const tokenIndex: number = this.index + k - 1;
+    this.sync(tokenIndex);
+    return Math.min(tokenIndex, this.tokenBuffer.size - 1);
+  }
+
+  get(tokenIndex: number): any {
+    if (tokenIndex < 0 || tokenIndex >= this.tokenBuffer.size) {
+      throw new Error(`token index ${tokenIndex} out of range 0..${this.tokenBuffer.size - 1}`);
+    }
+    const cacheSlot: number = tokenIndex & FLYWEIGHT_CACHE_MASK; // eslint-disable-line no-bitwise
+    const cached: any = this.flyweightCache[cacheSlot];
+    if (cached != null && cached.tokenIndex === tokenIndex) return cached;
+
+    const { tokenBuffer } = this;
+    const token: any = this.tokenSource._factory.create(
+      this.tokenSource._tokenFactorySourcePair,
+      tokenBuffer.types[tokenIndex],
+      null,
+      antlr4.Token.DEFAULT_CHANNEL,
+      tokenBuffer.starts[tokenIndex],
+      tokenBuffer.stops[tokenIndex],
+      tokenBuffer.lines[tokenIndex],
+      tokenBuffer.columns[tokenIndex],
+    );
+    token.tokenIndex = tokenIndex;
+    this.flyweightCache[cacheSlot] = token;
+    return token;
+  }
+
+  getText(interval: any): string {
+    this.fill();
+    let start = 0;
+    let stop: number = this.tokenBuffer.size - 1;
+    if (interval != null) {
+      start = interval.start != null && interval.start.tokenIndex != null ? interval.start.tokenIndex : interval.start;
+      stop = interval.stop != null && interval.stop.tokenIndex != null ? interval.stop.tokenIndex : interval.stop;
+    }
+    if (start == null || stop == null || start < 0 || stop < 0) return '';
+    stop = Math.min(stop, this.tokenBuffer.size - 1);
+
+    let result = '';
+    for (let i = start; i <= stop; i += 1) {
+      if (this.tokenBuffer.types[i] === antlr4.Token.EOF) break;
+      result += this.get(i).text;
+    }
+    return result;
+  }
+}
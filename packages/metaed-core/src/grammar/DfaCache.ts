@@ -0,0 +1,364 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import crypto from 'crypto';
+import fs from 'fs-extra';
+import antlr4 from '@edfi/antlr4/index';
+import antlr4Package from '@edfi/antlr4/package.json';
+import { ATNConfig, LexerATNConfig } from '@edfi/antlr4/atn/ATNConfig';
+import { ATNConfigSet, OrderedATNConfigSet } from '@edfi/antlr4/atn/ATNConfigSet';
+import { ATNSimulator } from '@edfi/antlr4/atn/ATNSimulator';
+import { LexerActionExecutor } from '@edfi/antlr4/atn/LexerActionExecutor';
+import { SemanticContext } from '@edfi/antlr4/atn/SemanticContext';
+import { DFAState } from '@edfi/antlr4/dfa/DFAState';
+import { SingletonPredictionContext, merge } from '@edfi/antlr4/PredictionContext';
+import { BitSet } from '@edfi/antlr4/Utils';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdLexer } from './MetaEdLexer';
+import { Logger } from '../Logger';
+
+const DFA_CACHE_FORMAT_VERSION = 1;
+
+// A target state number of -1 in a serialized edge is ATNSimulator.ERROR
+const ERROR_STATE = -1;
+
+// A parent id of -1 in a serialized prediction context is a null parent
+const NO_PARENT = -1;
+
+// A serialized prediction context is either a singleton [parentId, returnState] or an array [parentIds, returnStates].
+// The empty context is serialized as a singleton with no parent and the empty return state.
+type SerializedContext = [number, number] | [number[], number[]];
+
+// [ATN state number, alt, context id, reaches into outer context, precedence filter suppressed,
+//  lexer action executor id or -1, passed through non-greedy decision]
+type SerializedConfig = [number, number, number, number, number, number, number];
+
+interface SerializedDfaState {
+  stateNumber: number;
+  fullCtx: boolean;
+  uniqueAlt: number;
+  conflictingAlts: number[] | null;
+  dipsIntoOuterContext: boolean;
+  configs: SerializedConfig[];
+  isAcceptState: boolean;
+  prediction: number;
+  requiresFullContext: boolean;
+  lexerActionExecutor: number;
+  edges: [number, number][] | null;
+}
+
+interface SerializedDfa {
+  decision: number;
+  s0: number | null;
+  states: SerializedDfaState[];
+}
+
+interface SerializedRecognizer {
+  contexts: SerializedContext[];
+  lexerActionExecutors: number[][];
+  dfas: SerializedDfa[];
+}
+
+interface SerializedDfaCache {
+  version: number;
+  key: string;
+  lexer: SerializedRecognizer;
+  parser: SerializedRecognizer;
+}
+
+/**
+ * The static DFA arrays and ATNs shared by every MetaEdLexer and MetaEdGrammar instance
+ */
+function sharedDfas(): { lexer: { atn: any; decisionToDFA: any[] }; parser: { atn: any; decisionToDFA: any[] } } {
+  const lexer: any = new MetaEdLexer(new antlr4.InputStream(''));
+  const parser: any = new MetaEdGrammar(new antlr4.CommonTokenStream(lexer));
+  return {
+    lexer: { atn: lexer._interp.atn, decisionToDFA: lexer._interp.decisionToDFA },
+    parser: { atn: parser._interp.atn, decisionToDFA: parser._interp.decisionToDFA },
+  };
+}
+
+function intervalsOf(label: any): string {
+  if (label == null || label.intervals == null) return '';
+  return label.intervals.map((interval: any) => `${interval.start}-${interval.stop}`).join(',');
+}
+
+/**
+ * Every state of a deserialized ATN with its transitions, and any lexer actions. Unlike the generated files the
+ * ATN was deserialized from, this is the same when the grammar is bundled, as for the startup snapshot.
+ */
+function atnFingerprint(atn: any): string {
+  const states: string[] = atn.states.map((state: any) => {
+    if (state == null) return '';
+    const transitions: string[] = state.transitions.map(
+      (transition: any) =>
+        `${transition.serializationType}>${transition.target.stateNumber}:${intervalsOf(transition.label)}`,
+    );
+    return `${state.stateType}/${state.ruleIndex} ${transitions.join(' ')}`;
+  });
+  return `${states.join('\n')}\n${JSON.stringify(atn.lexerActions)}`;
+}
+
+/**
+ * A cache is only valid for the exact ATNs of the generated lexer and parser it was learned from, and for the
+ * runtime version that built the DFA states.
+ */
+function dfaCacheKey(): string {
+  const { lexer, parser } = sharedDfas();
+  const hash = crypto.createHash('sha256');
+  hash.update(String(DFA_CACHE_FORMAT_VERSION));
+  hash.update(atnFingerprint(lexer.atn));
+  hash.update(atnFingerprint(parser.atn));
+  hash.update(antlr4Package.version);
+  return hash.digest('hex');
+}
+
+function serializeRecognizer(atn: any, decisionToDFA: any[]): SerializedRecognizer {
+  const contexts: SerializedContext[] = [];
+  const contextIds: Map<any, number> = new Map();
+  const lexerActionExecutors: number[][] = [];
+  const lexerActionExecutorIds: Map<any, number> = new Map();
+
+  // Parents are always serialized before their children, so they can be restored in order
+  const contextIdFor = (context: any): number => {
+    if (context == null) return NO_PARENT;
+    const existingId: number | undefined = contextIds.get(context);
+    if (existingId != null) return existingId;
+
+    let serialized: SerializedContext;
+    if (Array.isArray(context.returnStates)) {
+      serialized = [context.parents.map(contextIdFor), [...context.returnStates]];
+    } else {
+      serialized = [contextIdFor(context.parentCtx), context.returnState];
+    }
+    const id: number = contexts.length;
+    contexts.push(serialized);
+    contextIds.set(context, id);
+    return id;
+  };
+
+  const lexerActionExecutorIdFor = (lexerActionExecutor: any): number => {
+    if (lexerActionExecutor == null) return -1;
+    const existingId: number | undefined = lexerActionExecutorIds.get(lexerActionExecutor);
+    if (existingId != null) return existingId;
+
+    const actionIndexes: number[] = lexerActionExecutor.lexerActions.map((action) => {
+      const actionIndex: number = atn.lexerActions.indexOf(action);
+      if (actionIndex < 0) throw new Error('Lexer action is not from the ATN');
+      return actionIndex;
+    });
+    const id: number = lexerActionExecutors.length;
+    lexerActionExecutors.push(actionIndexes);
+    lexerActionExecutorIds.set(lexerActionExecutor, id);
+    return id;
+  };
+
+  const dfas: SerializedDfa[] = decisionToDFA.map((dfa) => {
+    if (dfa.precedenceDfa) throw new Error('Precedence DFAs are not supported');
+    const dfaStates: any[] = dfa.states.values().sort((a, b) => a.stateNumber - b.stateNumber);
+
+    const states: SerializedDfaState[] = dfaStates.map((dfaState) => {
+      if (dfaState.predicates != null) throw new Error('DFA states with predicates are not supported');
+      const { configs } = dfaState;
+
+      const serializedConfigs: SerializedConfig[] = configs.configs.map((config) => {
+        if (config.semanticContext !== SemanticContext.NONE) throw new Error('Semantic contexts are not supported');
+        return [
+          config.state.stateNumber,
+          config.alt,
+          contextIdFor(config.context),
+          config.reachesIntoOuterContext,
+          config.precedenceFilterSuppressed ? 1 : 0,
+          lexerActionExecutorIdFor(config.lexerActionExecutor),
+          config.passedThroughNonGreedyDecision ? 1 : 0,
+        ];
+      });
+
+      let edges: [number, number][] | null = null;
+      if (dfaState.edges != null) {
+        const serializedEdges: [number, number][] = [];
+        dfaState.edges.forEach((target, symbolIndex: number) => {
+          if (target == null) return;
+          serializedEdges.push([symbolIndex, target === ATNSimulator.ERROR ? ERROR_STATE : target.stateNumber]);
+        });
+        edges = serializedEdges;
+      }
+
+      return {
+        stateNumber: dfaState.stateNumber,
+        fullCtx: configs.fullCtx,
+        uniqueAlt: configs.uniqueAlt,
+        conflictingAlts: configs.conflictingAlts == null ? null : configs.conflictingAlts.values().map(Number),
+        dipsIntoOuterContext: configs.dipsIntoOuterContext,
+        configs: serializedConfigs,
+        isAcceptState: dfaState.isAcceptState,
+        prediction: dfaState.prediction,
+        requiresFullContext: dfaState.requiresFullContext,
+        lexerActionExecutor: lexerActionExecutorIdFor(dfaState.lexerActionExecutor),
+        edges,
+      };
+    });
+
+    return { decision: dfa.decision, s0: dfa.s0 == null ? null : dfa.s0.stateNumber, states };
+  });
+
+  return { contexts, lexerActionExecutors, dfas };
+}
+
+/**
+ * Rebuilds DFAs from their serialized form. The restored DFAs are new objects, so nothing shared is touched
+ * until the caller swaps them in.
+ */
+function deserializeRecognizer(atn: any, decisionToDFA: any[], serialized: SerializedRecognizer, isLexer: boolean): any[] {
+  if (serialized.dfas.length !== decisionToDFA.length) throw new Error('Decision count mismatch');
+
+  const contexts: any[] = [];
+  serialized.contexts.forEach((serializedContext: SerializedContext) => {
+    const parentFor = (parentId: number): any => (parentId === NO_PARENT ? null : contexts[parentId]);
+    const [parentIds, returnStates] = serializedContext;
+    if (Array.isArray(parentIds) && Array.isArray(returnStates)) {
+      // Merging the singletons back together recreates the sorted array context they came from
+      let context: any = SingletonPredictionContext.create(parentFor(parentIds[0]), returnStates[0]);
+      for (let i = 1; i < parentIds.length; i += 1) {
+        context = merge(context, SingletonPredictionContext.create(parentFor(parentIds[i]), returnStates[i]), false, null);
+      }
+      contexts.push(context);
+    } else {
+      contexts.push(SingletonPredictionContext.create(parentFor(parentIds as number), returnStates as number));
+    }
+  });
+
+  const lexerActionExecutors: any[] = serialized.lexerActionExecutors.map(
+    (actionIndexes: number[]) => new LexerActionExecutor(actionIndexes.map((actionIndex) => atn.lexerActions[actionIndex])),
+  );
+  const lexerActionExecutorFor = (id: number): any => (id < 0 ? null : lexerActionExecutors[id]);
+
+  return serialized.dfas.map((serializedDfa: SerializedDfa, decision: number) => {
+    const original: any = decisionToDFA[decision];
+    if (serializedDfa.decision !== original.decision) throw new Error('Decision number mismatch');
+    const dfa: any = new antlr4.dfa.DFA(original.atnStartState, original.decision);
+
+    const statesByNumber: Map<number, any> = new Map();
+    serializedDfa.states.forEach((serializedState: SerializedDfaState) => {
+      const configSet: any = isLexer ? new OrderedATNConfigSet() : new ATNConfigSet(serializedState.fullCtx);
+      serializedState.configs.forEach((serializedConfig: SerializedConfig) => {
+        const [stateNumber, alt, contextId, reachesIntoOuterContext, precedenceFilterSuppressed, executorId, nonGreedy] =
+          serializedConfig;
+        const state: any = atn.states[stateNumber];
+        if (state == null) throw new Error(`Unknown ATN state ${stateNumber}`);
+        const context: any = contexts[contextId];
+        const config: any = isLexer
+          ? new LexerATNConfig({ state, alt, context, lexerActionExecutor: lexerActionExecutorFor(executorId) }, null)
+          : new ATNConfig({ state, alt, context }, null);
+        config.reachesIntoOuterContext = reachesIntoOuterContext;
+        config.precedenceFilterSuppressed = precedenceFilterSuppressed === 1;
+        if (isLexer) config.passedThroughNonGreedyDecision = nonGreedy === 1;
+        configSet.add(config);
+      });
+      configSet.uniqueAlt = serializedState.uniqueAlt;
+      configSet.dipsIntoOuterContext = serializedState.dipsIntoOuterContext;
+      if (serializedState.conflictingAlts != null) {
+        configSet.conflictingAlts = new BitSet();
+        serializedState.conflictingAlts.forEach((alt) => configSet.conflictingAlts.add(alt));
+      }
+      configSet.setReadonly(true);
+
+      const dfaState: any = new DFAState(serializedState.stateNumber, configSet);
+      dfaState.isAcceptState = serializedState.isAcceptState;
+      dfaState.prediction = serializedState.prediction;
+      dfaState.requiresFullContext = serializedState.requiresFullContext;
+      dfaState.lexerActionExecutor = lexerActionExecutorFor(serializedState.lexerActionExecutor);
+      dfa.states.add(dfaState);
+      statesByNumber.set(dfaState.stateNumber, dfaState);
+    });
+
+    // Edges can point forward, so are linked once every state exists
+    serializedDfa.states.forEach((serializedState: SerializedDfaState) => {
+      if (serializedState.edges == null) return;
+      const dfaState: any = statesByNumber.get(serializedState.stateNumber);
+      dfaState.edges = [];
+      serializedState.edges.forEach(([symbolIndex, targetStateNumber]) => {
+        const target: any = targetStateNumber === ERROR_STATE ? ATNSimulator.ERROR : statesByNumber.get(targetStateNumber);
+        if (target == null) throw new Error(`Unknown DFA state ${targetStateNumber}`);
+        dfaState.edges[symbolIndex] = target;
+      });
+    });
+
+    if (serializedDfa.s0 != null) {
+      dfa.s0 = statesByNumber.get(serializedDfa.s0);
+      if (dfa.s0 == null) throw new Error(`Unknown DFA start state ${serializedDfa.s0}`);
+    }
+    return dfa;
+  });
+}
+
+/**
+ * Discards every DFA state the lexer and parser have learned in this process, as if starting cold
+ */
+export function clearDfas() {
+  const { lexer, parser } = sharedDfas();
+  [lexer.decisionToDFA, parser.decisionToDFA].forEach((decisionToDFA: any[]) => {
+    decisionToDFA.forEach((dfa, decision: number) => {
+      decisionToDFA[decision] = new antlr4.dfa.DFA(dfa.atnStartState, dfa.decision);
+    });
+  });
+}
+
+/**
+ * Writes the DFA states the lexer and parser have learned so far in this process to a cache file,
+ * so a later process can start warm with loadDfaCache(). Returns false if the cache could not be written.
+ */
+export function saveDfaCache(cacheFilePath: string): boolean {
+  try {
+    const { lexer, parser } = sharedDfas();
+    const dfaCache: SerializedDfaCache = {
+      version: DFA_CACHE_FORMAT_VERSION,
+      key: dfaCacheKey(),
+      lexer: serializeRecognizer(lexer.atn, lexer.decisionToDFA),
+      parser: serializeRecognizer(parser.atn, parser.decisionToDFA),
+    };
+    // Write then rename, so a concurrent reader never sees a partial file
+    const tempFilePath = `${cacheFilePath}.${process.pid}.tmp`;
+    fs.outputFileSync(tempFilePath, JSON.stringify(dfaCache));
+    fs.renameSync(tempFilePath, cacheFilePath);
+    return true;
+  } catch (error) {
+    Logger.warn(`Unable to save DFA cache to ${cacheFilePath}: ${error}`);
+    return false;
+  }
+}
+
+/**
+ * Restores lexer and parser DFA states from a cache file written by saveDfaCache(), for every decision that has not
+ * been warmed in this process yet. A missing, stale or unreadable cache is ignored, leaving the DFAs as they were.
+ * Returns true if the cache was loaded.
+ */
+export function loadDfaCache(cacheFilePath: string): boolean {
+  try {
+    if (!fs.existsSync(cacheFilePath)) return false;
+    const dfaCache: SerializedDfaCache = fs.readJsonSync(cacheFilePath);
+    if (dfaCache.version !== DFA_CACHE_FORMAT_VERSION || dfaCache.key !== dfaCacheKey()) {
+      Logger.debug(`Ignoring stale DFA cache ${cacheFilePath}`);
+      return false;
+    }
+
+    const { lexer, parser } = sharedDfas();
+    const lexerDfas: any[] = deserializeRecognizer(lexer.atn, lexer.decisionToDFA, dfaCache.lexer, true);
+    const parserDfas: any[] = deserializeRecognizer(parser.atn, parser.decisionToDFA, dfaCache.parser, false);
+
+    // Only swap in once everything has been restored, and never over a DFA that has already started learning
+    const swapIn = (decisionToDFA: any[], restored: any[]) =>
+      restored.forEach((dfa, decision: number) => {
+        if (decisionToDFA[decision].s0 == null) decisionToDFA[decision] = dfa;
+      });
+    swapIn(lexer.decisionToDFA, lexerDfas);
+    swapIn(parser.decisionToDFA, parserDfas);
+    return true;
+  } catch (error) {
+    Logger.warn(`Unable to load DFA cache from ${cacheFilePath}: ${error}`);
+    return false;
+  }
+}
@@ -0,0 +1,269 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import { Worker } from 'worker_threads';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { CompactTokenStream } from './CompactTokenStream';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdLexer } from './MetaEdLexer';
+import { startsTopLevelEntity } from './MetaEdParser';
+import { buildMetaEdFromTokens, buildTopLevelEntityFromTokens } from './ParseTreeBuilder';
+import { decodeParseTree, EncodedParseTree } from './ParseTreeEncoding';
+import { SymbolTable } from './SymbolTable';
+import { TokenBuffer, TokenBufferArrays } from './TokenBuffer';
+
+// Below this many top level entities per worker, starting a worker costs more than parsing them inline
+const MIN_ENTITIES_PER_WORKER = 200;
+
+// Compiled alongside this module in dist, but not present when running from TypeScript source
+const WORKER_FILE_PATH = path.join(__dirname, 'EntitySlicedParserWorker.js');
+
+/**
+ * The token indexes of one top level entity, from start up to but not including end
+ */
+export interface TokenSlice {
+  start: number;
+  end: number;
+}
+
+/**
+ * The work for an entity slice parser worker: the text and all of its tokens, and the slices to parse
+ */
+export interface EntitySliceWork {
+  text: string;
+  tokens: TokenBufferArrays;
+  slices: TokenSlice[];
+  dfaCacheFilePath: string | null;
+  resyncOnEntityError: boolean;
+}
+
+/**
+ * The parse trees of an entity slice parser worker's slices in order, the syntax errors it found, and whether any
+ * entity ended before its slice did
+ */
+export interface EntitySliceResult {
+  trees: EncodedParseTree[];
+  failures: ValidationFailure[];
+  endsEarly: boolean;
+}
+
+/**
+ * Splits tokens into top level entity slices. Each slice runs from a token that can start a top level entity to
+ * the next one, or to the next Begin Namespace, End Namespace or EOF for the last slice of a namespace.
+ */
+export function entitySlices(tokens: TokenBufferArrays): TokenSlice[] {
+  const slices: TokenSlice[] = [];
+  let sliceStart = -1;
+  for (let i = 0; i < tokens.size; i += 1) {
+    const tokenType: number = tokens.types[i];
+    const endsSlice: boolean =
+      tokenType === MetaEdGrammar.BEGIN_NAMESPACE ||
+      tokenType === MetaEdGrammar.END_NAMESPACE ||
+      tokenType === antlr4.Token.EOF;
+    if (startsTopLevelEntity[tokenType] || endsSlice) {
+      if (sliceStart >= 0) slices.push({ start: sliceStart, end: i });
+      sliceStart = endsSlice ? -1 : i;
+    }
+  }
+  return slices;
+}
+
+function isSingleNamespace(tokens: TokenBufferArrays): boolean {
+  if (tokens.size === 0 || tokens.types[0] !== MetaEdGrammar.BEGIN_NAMESPACE) return false;
+  for (let i = 1; i < tokens.size; i += 1) {
+    if (tokens.types[i] === MetaEdGrammar.BEGIN_NAMESPACE) return false;
+  }
+  return true;
+}
+
+function appendRange(tokenBuffer: TokenBuffer, tokens: TokenBufferArrays, start: number, end: number) {
+  for (let i = start; i < end; i += 1) {
+    tokenBuffer.add(tokens.types[i], tokens.starts[i], tokens.stops[i], tokens.lines[i], tokens.columns[i]);
+  }
+}
+
+/**
+ * The tokens of a slice, ending with an EOF token where the token after the slice starts
+ */
+function sliceTokens(tokens: TokenBufferArrays, slice: TokenSlice): TokenBuffer {
+  const tokenBuffer = new TokenBuffer(slice.end - slice.start + 1);
+  appendRange(tokenBuffer, tokens, slice.start, slice.end);
+  const next: number = slice.end;
+  tokenBuffer.add(antlr4.Token.EOF, tokens.starts[next], tokens.starts[next] - 1, tokens.lines[next], tokens.columns[next]);
+  return tokenBuffer;
+}
+
+/**
+ * Parses a single slice with topLevelEntity(). Its tokens are numbered from the start of the slice.
+ */
+export function parseEntitySlice(
+  metaEdErrorListener: MetaEdErrorListener,
+  text: string,
+  tokens: TokenBufferArrays,
+  slice: TokenSlice,
+  resyncOnEntityError: boolean = false,
+  symbolTable: SymbolTable | null = new SymbolTable(),
+): any {
+  return buildTopLevelEntityFromTokens(
+    metaEdErrorListener,
+    text,
+    sliceTokens(tokens, slice),
+    resyncOnEntityError,
+    symbolTable,
+  );
+}
+
+/**
+ * Whether the entity parsed from a slice ends before the slice does. The tokens left over, such as a misspelled
+ * property keyword after a complete property, end the entity early without an error from topLevelEntity(), but are
+ * extraneous input to a whole parse.
+ */
+export function endsBeforeSlice(entity: any, slice: TokenSlice): boolean {
+  return entity.stop == null || entity.stop.tokenIndex !== slice.end - slice.start - 1;
+}
+
+async function parseSlicesInWorker(work: EntitySliceWork): Promise<EntitySliceResult> {
+  return new Promise((resolve, reject) => {
+    const worker = new Worker(WORKER_FILE_PATH, { workerData: work });
+    worker.once('message', resolve);
+    worker.once('error', reject);
+    worker.once('exit', (exitCode: number) => {
+      if (exitCode !== 0) reject(new Error(`Entity slice parser worker stopped with exit code ${exitCode}`));
+    });
+  });
+}
+
+/**
+ * Parses the top level entity slices on worker threads, rebuilding their parse trees on this thread, or returns null
+ * if any entity ends before its slice does
+ */
+async function parseSlicesInWorkers(
+  metaEdErrorListener: MetaEdErrorListener,
+  text: string,
+  tokenBuffer: TokenBuffer,
+  slices: TokenSlice[],
+  workerCount: number,
+  parser: any,
+  dfaCacheFilePath: string | null,
+  resyncOnEntityError: boolean,
+  symbolTable: SymbolTable,
+): Promise<any[] | null> {
+  const tokens: TokenBufferArrays = tokenBuffer.trimmed();
+  const batchSize: number = Math.ceil(slices.length / workerCount);
+  const batches: TokenSlice[][] = [];
+  for (let i = 0; i < slices.length; i += batchSize) batches.push(slices.slice(i, i + batchSize));
+  const results: EntitySliceResult[] = await Promise.all(
+    batches.map((batch: TokenSlice[]) =>
+      parseSlicesInWorker({ text, tokens, slices: batch, dfaCacheFilePath, resyncOnEntityError }),
+    ),
+  );
+  if (results.some((result: EntitySliceResult) => result.endsEarly)) return null;
+
+  const lexer = new MetaEdLexer(new antlr4.InputStream(text));
+  lexer.symbolTable = symbolTable;
+  const tokenStream = new CompactTokenStream(lexer, tokenBuffer);
+  return results.flatMap((result: EntitySliceResult) => {
+    metaEdErrorListener.reportFailures(result.failures);
+    return result.trees.map((tree: EncodedParseTree) => decodeParseTree(tree, parser, tokenStream));
+  });
+}
+
+/**
+ * Parses the top level entity slices on this thread, or returns null if any entity ends before its slice does
+ */
+function parseSlicesInline(
+  metaEdErrorListener: MetaEdErrorListener,
+  text: string,
+  tokenBuffer: TokenBuffer,
+  slices: TokenSlice[],
+  resyncOnEntityError: boolean,
+  symbolTable: SymbolTable,
+): any[] | null {
+  const entities: any[] = [];
+  // eslint-disable-next-line no-restricted-syntax
+  for (const slice of slices) {
+    const entity: any = parseEntitySlice(metaEdErrorListener, text, tokenBuffer, slice, resyncOnEntityError, symbolTable);
+    if (endsBeforeSlice(entity, slice)) return null;
+    entities.push(entity);
+  }
+  return entities;
+}
+
+/**
+ * Parses a single namespace of MetaEd, already lexed into a TokenBuffer ending with EOF, one top level entity at a
+ * time. The namespace with its first entity is parsed with metaEd(), and every other entity on its own with
+ * topLevelEntity(), on up to parallelism worker threads when there are enough of them, then attached in order under
+ * the namespace. Worker threads warm their DFAs from the DFA cache file, if given. Syntax errors are recovered from
+ * with MetaEdErrorStrategy if resyncOnEntityError is set. ID names are interned in the given symbol table.
+ *
+ * The parse tree and syntax errors are the same as parsing the whole namespace with metaEd(). A slice parsed on its
+ * own ends with EOF rather than the next entity's keyword, so recovers from and reports an error at the end of an
+ * entity differently, and an entity can end before its slice does, leaving tokens that topLevelEntity() does not
+ * report but a whole parse does. In either case, the whole namespace is parsed again, with the errors of that parse
+ * alone. Input that is not a single namespace with more than one entity is parsed whole.
+ */
+export async function buildMetaEdByEntity(
+  metaEdErrorListener: MetaEdErrorListener,
+  text: string,
+  tokenBuffer: TokenBuffer,
+  parallelism: number = os.cpus().length,
+  dfaCacheFilePath: string | null = null,
+  resyncOnEntityError: boolean = false,
+  symbolTable: SymbolTable = new SymbolTable(),
+): Promise<MetaEdGrammar> {
+  const parseWhole = (errorListener: MetaEdErrorListener): MetaEdGrammar =>
+    buildMetaEdFromTokens(errorListener, text, tokenBuffer, resyncOnEntityError, symbolTable);
+  const slices: TokenSlice[] = entitySlices(tokenBuffer);
+  if (slices.length < 2 || !isSingleNamespace(tokenBuffer)) return parseWhole(metaEdErrorListener);
+
+  // errors are only looked at to fall back to a whole parse, which reports them in context
+  const sliceFailures: ValidationFailure[] = [];
+  const sliceErrorListener = new MetaEdErrorListener(sliceFailures, metaEdErrorListener.validatorName);
+  const lastSlice: TokenSlice = slices[slices.length - 1];
+  const namespaceTokens = new TokenBuffer(slices[0].end + tokenBuffer.size - lastSlice.end);
+  appendRange(namespaceTokens, tokenBuffer, 0, slices[0].end);
+  appendRange(namespaceTokens, tokenBuffer, lastSlice.end, tokenBuffer.size);
+  const tree: any = buildMetaEdFromTokens(sliceErrorListener, text, namespaceTokens, resyncOnEntityError, symbolTable);
+  const namespace: any = tree.namespace(0);
+  if (namespace == null || namespace.children == null) {
+    // nothing to attach entities to
+    return parseWhole(metaEdErrorListener);
+  }
+
+  const otherSlices: TokenSlice[] = slices.slice(1);
+  const workerCount: number = Math.min(parallelism, Math.floor(otherSlices.length / MIN_ENTITIES_PER_WORKER));
+  const entities: any[] | null =
+    workerCount > 1 && fs.existsSync(WORKER_FILE_PATH)
+      ? await parseSlicesInWorkers(
+          sliceErrorListener,
+          text,
+          tokenBuffer,
+          otherSlices,
+          workerCount,
+          namespace.parser,
+          dfaCacheFilePath,
+          resyncOnEntityError,
+          symbolTable,
+        )
+      : parseSlicesInline(sliceErrorListener, text, tokenBuffer, otherSlices, resyncOnEntityError, symbolTable);
+  if (entities == null || sliceFailures.length > 0) return parseWhole(metaEdErrorListener);
+
+  const children: any[] = namespace.children;
+  const lastChild: any = children[children.length - 1];
+  const insertAt: number =
+    lastChild.symbol != null && lastChild.symbol.type === MetaEdGrammar.END_NAMESPACE
+      ? children.length - 1
+      : children.length;
+  entities.forEach((entity: any) => {
+    entity.parentCtx = namespace;
+  });
+  children.splice(insertAt, 0, ...entities);
+  return tree;
+}
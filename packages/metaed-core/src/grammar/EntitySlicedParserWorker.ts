@@ -0,0 +1,37 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { parentPort, workerData } from 'worker_threads';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { loadDfaCache } from './DfaCache';
+import { endsBeforeSlice, EntitySliceResult, EntitySliceWork, parseEntitySlice, TokenSlice } from './EntitySlicedParser';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { encodeParseTree } from './ParseTreeEncoding';
+
+// Worker thread entry point for buildMetaEdByEntity: parses the slices in workerData with topLevelEntity() and posts
+// back their encoded parse trees, transferred rather than copied, along with any syntax errors and whether any entity
+// ended before its slice did. Names are not interned here, as the trees are decoded into tokens of the run's symbol
+// table on the calling thread
+const { text, tokens, slices, dfaCacheFilePath, resyncOnEntityError } = workerData as EntitySliceWork;
+if (dfaCacheFilePath != null) loadDfaCache(dfaCacheFilePath);
+
+const failures: ValidationFailure[] = [];
+const errorListener = new MetaEdErrorListener(failures, 'EntitySlicedParser - MetaEdErrorListener');
+let endsEarly = false;
+const result: EntitySliceResult = {
+  trees: slices.map((slice: TokenSlice) => {
+    const entity: any = parseEntitySlice(errorListener, text, tokens, slice, resyncOnEntityError, null);
+    if (endsBeforeSlice(entity, slice)) endsEarly = true;
+    return encodeParseTree(entity, slice.start, slice.end - slice.start + 1);
+  }),
+  failures,
+  endsEarly,
+};
+if (parentPort != null) {
+  parentPort.postMessage(
+    result,
+    result.trees.map((tree) => tree.nodes.buffer),
+  );
+}
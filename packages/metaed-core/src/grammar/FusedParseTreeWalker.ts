@@ -0,0 +1,110 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { ErrorNodeImpl, TerminalNode } from '@edfi/antlr4/tree/Tree';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdGrammarListener } from './gen/MetaEdGrammarListener';
+
+type NodeHandler = (node: any) => void;
+
+/**
+ * The calls to make on a rule context, terminal or error node, in listener order
+ */
+interface Dispatch {
+  enterRule: NodeHandler[][];
+  exitRule: NodeHandler[][];
+  terminal: NodeHandler[];
+  errorNode: NodeHandler[];
+}
+
+function overrides(listener: any, methodName: string, base: any): boolean {
+  return typeof listener[methodName] === 'function' && listener[methodName] !== base[methodName];
+}
+
+function handlerFor(listener: any, methodName: string): NodeHandler {
+  return (node: any) => listener[methodName](node);
+}
+
+function capitalized(ruleName: string): string {
+  return `${ruleName[0].toUpperCase()}${ruleName.substring(1)}`;
+}
+
+/**
+ * The handlers of each listener that override what they would be called for, skipping the no-op methods
+ * of ParseTreeListener and MetaEdGrammarListener. Rule methods are only called on MetaEdGrammarListeners,
+ * as the generated contexts do.
+ */
+function dispatchFor(listeners: any[]): Dispatch {
+  const listenerBase: any = antlr4.tree.ParseTreeListener.prototype;
+  const grammarBase: any = MetaEdGrammarListener.prototype;
+  const handlersOf = (methodName: string): NodeHandler[] =>
+    listeners
+      .filter((listener: any) => overrides(listener, methodName, listenerBase))
+      .map((listener: any) => handlerFor(listener, methodName));
+
+  const ruleHandlers = (prefix: 'enter' | 'exit', ruleName: string): NodeHandler[] => {
+    const ruleMethodName = `${prefix}${capitalized(ruleName)}`;
+    const everyRuleMethodName = `${prefix}EveryRule`;
+    const handlers: NodeHandler[] = [];
+    listeners.forEach((listener: any) => {
+      const everyRule: boolean = overrides(listener, everyRuleMethodName, listenerBase);
+      const rule: boolean = listener instanceof MetaEdGrammarListener && overrides(listener, ruleMethodName, grammarBase);
+      // as ParseTreeWalker does: enterEveryRule before the rule's own enter, exitEveryRule after its exit
+      if (prefix === 'enter' && everyRule) handlers.push(handlerFor(listener, everyRuleMethodName));
+      if (rule) handlers.push(handlerFor(listener, ruleMethodName));
+      if (prefix === 'exit' && everyRule) handlers.push(handlerFor(listener, everyRuleMethodName));
+    });
+    return handlers;
+  };
+
+  const { ruleNames } = MetaEdGrammar.prototype;
+  return {
+    enterRule: ruleNames.map((ruleName: string) => ruleHandlers('enter', ruleName)),
+    exitRule: ruleNames.map((ruleName: string) => ruleHandlers('exit', ruleName)),
+    terminal: handlersOf('visitTerminal'),
+    errorNode: handlersOf('visitErrorNode'),
+  };
+}
+
+/**
+ * FusedParseTreeWalker walks a MetaEdGrammar parse tree once for a list of listeners, where ParseTreeWalker would
+ * walk the whole tree once for each. At every node, each listener in list order gets the calls ParseTreeWalker
+ * would make on it, so each listener sees the same calls in the same order as walking it alone. What a listener
+ * can see of the others differs: a listener sees the work of listeners before it up to the current node, but not
+ * yet of the rest of the tree. Listeners that depend on another having walked the whole tree first, rather than
+ * only being earlier in the list, need their own walk.
+ *
+ * Each listener is only called for the rules it has methods for, so a rule that no listener listens to costs no
+ * more than the visit itself.
+ */
+export class FusedParseTreeWalker {
+  dispatch: Dispatch;
+
+  constructor(listeners: any[]) {
+    this.dispatch = dispatchFor(listeners);
+  }
+
+  /**
+   * Walks the tree, skipping the subtrees of rule contexts that are pruned, which no listener gets any calls for
+   */
+  walk(tree: any, isPruned: (context: any) => boolean = () => false) {
+    const { enterRule, exitRule, terminal, errorNode } = this.dispatch;
+    const visit = (node: any) => {
+      if (node instanceof ErrorNodeImpl) {
+        errorNode.forEach((handler: NodeHandler) => handler(node));
+      } else if (node instanceof TerminalNode) {
+        terminal.forEach((handler: NodeHandler) => handler(node));
+      } else {
+        const context: any = node.getRuleContext();
+        if (isPruned(context)) return;
+        enterRule[context.ruleIndex].forEach((handler: NodeHandler) => handler(context));
+        if (node.children != null) node.children.forEach(visit);
+        exitRule[context.ruleIndex].forEach((handler: NodeHandler) => handler(context));
+      }
+    };
+    visit(tree);
+  }
+}
@@ -0,0 +1,173 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { BaseLexer } from './gen/BaseLexer';
+import { MetaEdLexer } from './MetaEdLexer';
+import { TokenBuffer } from './TokenBuffer';
+
+const CHARACTER_LINE_FEED = 10;
+
+// How far past the end of a token the lexer can have looked while matching it, but for the tokens
+// hasUnboundedLookahead finds. Otherwise the lexer only looks past a token while trying for a longer keyword literal,
+// so this is the length of the longest one.
+const MAX_LOOKAHEAD: number = BaseLexer.prototype.literalNames.reduce(
+  (max: number, literalName: string | null) => (literalName == null ? max : Math.max(max, literalName.length - 2)),
+  1,
+);
+
+/**
+ * Replaces the text from start up to but not including end with the given text
+ */
+export interface TextEdit {
+  start: number;
+  end: number;
+  text: string;
+}
+
+/**
+ * The result of relexing after a TextEdit. Tokens before firstChangedToken are the same in both token buffers.
+ * Old tokens from oldResumeToken on are the same as new tokens from newResumeToken on, shifted to their new position.
+ */
+export interface RelexResult {
+  text: string;
+  tokenBuffer: TokenBuffer;
+  firstChangedToken: number;
+  oldResumeToken: number;
+  newResumeToken: number;
+}
+
+export function applyTextEdit(text: string, edit: TextEdit): string {
+  return text.substring(0, edit.start) + edit.text + text.substring(edit.end);
+}
+
+function isDigit(character: string | undefined): boolean {
+  return character != null && character >= '0' && character <= '9';
+}
+
+/**
+ * A token the lexer may have looked past for as long as there is text to match, so beyond MAX_LOOKAHEAD:
+ * an error character from a failed TEXT or LINE_COMMENT match, where the lexer may have looked as far as the end of
+ * the input for a closing quote or line feed, or from a failed METAED_ID match, where it looked over the digit run
+ * after a '[' for a closing ']', or a NEG_SIGN from a failed DECIMAL_VALUE match, where it looked over the digit run
+ * after it for a '.'
+ */
+function hasUnboundedLookahead(text: string, tokens: TokenBuffer, index: number): boolean {
+  const stop: number = tokens.stops[index];
+  if (tokens.types[index] === BaseLexer.NEG_SIGN) return isDigit(text[stop + 1]);
+  if (tokens.types[index] !== BaseLexer.ERROR_CHARACTER) return false;
+  for (let i = tokens.starts[index]; i <= stop; i += 1) {
+    if (text[i] === '"' || text[i] === '/') return true;
+    if (text[i] === '[' && isDigit(text[i + 1])) return true;
+  }
+  return false;
+}
+
+/**
+ * The number of leading tokens the lexer matched without looking at text from editStart on,
+ * so are unaffected by an edit there
+ */
+function unaffectedTokenCount(text: string, tokens: TokenBuffer, editStart: number): number {
+  let low = 0;
+  let high: number = tokens.size;
+  while (low < high) {
+    const middle: number = Math.floor((low + high) / 2);
+    if (tokens.stops[middle] + MAX_LOOKAHEAD < editStart) low = middle + 1;
+    else high = middle;
+  }
+  for (let i = 0; i < low; i += 1) {
+    if (hasUnboundedLookahead(text, tokens, i)) return i;
+  }
+  return low;
+}
+
+function errorTokenCount(tokens: TokenBuffer, count: number): number {
+  let result = 0;
+  for (let i = 0; i < count; i += 1) {
+    if (tokens.types[i] === BaseLexer.ERROR_CHARACTER) result += 1;
+  }
+  return result;
+}
+
+/**
+ * The line and column just past the end of a token, following the lexer's own counting
+ */
+function positionAfter(text: string, tokens: TokenBuffer, index: number): { line: number; column: number } {
+  let line: number = tokens.lines[index];
+  let column: number = tokens.columns[index];
+  for (let i = tokens.starts[index]; i <= tokens.stops[index]; i += 1) {
+    if (text.charCodeAt(i) === CHARACTER_LINE_FEED) {
+      line += 1;
+      column = 0;
+    } else {
+      column += 1;
+    }
+  }
+  return { line, column };
+}
+
+/**
+ * Appends old tokens from oldIndex on, shifted to follow an edit. The old token at oldIndex is the same as
+ * the newly lexed resync token, which gives the line shift for every token and the column shift on its line.
+ */
+function appendShifted(result: TokenBuffer, oldTokens: TokenBuffer, oldIndex: number, resyncToken: any, delta: number) {
+  const resyncLine: number = oldTokens.lines[oldIndex];
+  const lineDelta: number = resyncToken.line - resyncLine;
+  const columnDelta: number = resyncToken.column - oldTokens.columns[oldIndex];
+  for (let i = oldIndex; i < oldTokens.size; i += 1) {
+    const line: number = oldTokens.lines[i];
+    result.add(
+      oldTokens.types[i],
+      oldTokens.starts[i] + delta,
+      oldTokens.stops[i] + delta,
+      line + lineDelta,
+      line === resyncLine ? oldTokens.columns[i] + columnDelta : oldTokens.columns[i],
+    );
+  }
+}
+
+/**
+ * Relexes text after an edit, given the text and tokens from before it, ending in EOF. Lexing restarts from the last
+ * token before the edit that the lexer matched without looking into the edit, and stops once a new token past the
+ * edit starts where an old token started, as from there the lexer sees the same text in the same state and produces
+ * the same tokens. Edits inside multi-line TEXT literals and comments are covered, as relexing restarts before them.
+ */
+export function relex(oldText: string, oldTokens: TokenBuffer, edit: TextEdit): RelexResult {
+  const text: string = applyTextEdit(oldText, edit);
+  const delta: number = edit.text.length - (edit.end - edit.start);
+  const newEditEnd: number = edit.start + edit.text.length;
+
+  const firstChangedToken: number = unaffectedTokenCount(oldText, oldTokens, edit.start);
+  const tokenBuffer = new TokenBuffer(oldTokens.size + 16);
+  tokenBuffer.appendFrom(oldTokens, firstChangedToken);
+
+  const lexer: any = new MetaEdLexer(new antlr4.InputStream(text));
+  lexer.errorTokenCount = errorTokenCount(oldTokens, firstChangedToken);
+  if (firstChangedToken > 0) {
+    const { line, column } = positionAfter(oldText, oldTokens, firstChangedToken - 1);
+    lexer._input.seek(oldTokens.stops[firstChangedToken - 1] + 1);
+    lexer._interp.line = line;
+    lexer._interp.column = column;
+  }
+
+  let oldIndex: number = firstChangedToken;
+  for (;;) {
+    const token: any = lexer.nextToken();
+    if (token.start >= newEditEnd) {
+      const oldStart: number = token.start - delta;
+      while (oldIndex < oldTokens.size && oldTokens.starts[oldIndex] < oldStart) oldIndex += 1;
+      if (oldIndex < oldTokens.size && oldTokens.starts[oldIndex] === oldStart) {
+        const newResumeToken: number = tokenBuffer.size;
+        appendShifted(tokenBuffer, oldTokens, oldIndex, token, delta);
+        return { text, tokenBuffer, firstChangedToken, oldResumeToken: oldIndex, newResumeToken };
+      }
+    }
+    tokenBuffer.addToken(token);
+    if (token.type === antlr4.Token.EOF) {
+      return { text, tokenBuffer, firstChangedToken, oldResumeToken: oldTokens.size, newResumeToken: tokenBuffer.size };
+    }
+  }
+}
@@ -0,0 +1,268 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { ValidationFailure } from '../validator/ValidationFailure';
+import { lexChunk } from './ChunkedLexer';
+import { entitySlices, TokenSlice } from './EntitySlicedParser';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { RelexResult, relex, TextEdit } from './IncrementalLexer';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { buildMetaEdFromTokens, twoStageParse } from './ParseTreeBuilder';
+import { SymbolTable } from './SymbolTable';
+import { TokenBuffer } from './TokenBuffer';
+
+/**
+ * A parse tree along with the text and tokens it was parsed from, as needed to reparse it after an edit, and the
+ * symbol table its names are interned in, which reparses keep using
+ */
+export interface IncrementalParse {
+  text: string;
+  tokenBuffer: TokenBuffer;
+  tree: any;
+  hasSyntaxErrors: boolean;
+  symbolTable: SymbolTable;
+}
+
+/**
+ * The result of reparsing after an edit. Changed entities are the new top level entity contexts that were parsed
+ * again, and removed entities are the old ones no longer in the tree. Every other top level entity context in the
+ * tree is the same instance as before. After a full reparse, every entity has changed and every old one is removed.
+ */
+export interface ReparseResult extends IncrementalParse {
+  changedEntities: any[];
+  removedEntities: any[];
+  isFullReparse: boolean;
+}
+
+/**
+ * Parses MetaEd text with metaEd(), keeping what is needed to reparse it incrementally
+ */
+export function parseIncrementally(metaEdErrorListener: MetaEdErrorListener, text: string): IncrementalParse {
+  const failureCount: number = metaEdErrorListener.messageCollection.length;
+  const tokenBuffer: TokenBuffer = lexChunk({ text, offset: 0, line: 1 }, metaEdErrorListener);
+  const symbolTable = new SymbolTable();
+  const tree: any = buildMetaEdFromTokens(metaEdErrorListener, text, tokenBuffer, false, symbolTable);
+  const hasSyntaxErrors: boolean = metaEdErrorListener.messageCollection.length > failureCount;
+  return { text, tokenBuffer, tree, hasSyntaxErrors, symbolTable };
+}
+
+function topLevelEntitiesOf(tree: any): any[] {
+  return tree.namespace().flatMap((namespace: any) => namespace.topLevelEntity());
+}
+
+function fullReparse(
+  metaEdErrorListener: MetaEdErrorListener,
+  previous: IncrementalParse,
+  relexed: RelexResult,
+): ReparseResult {
+  const failureCount: number = metaEdErrorListener.messageCollection.length;
+  const { symbolTable } = previous;
+  const tree: any = buildMetaEdFromTokens(metaEdErrorListener, relexed.text, relexed.tokenBuffer, false, symbolTable);
+  return {
+    text: relexed.text,
+    tokenBuffer: relexed.tokenBuffer,
+    symbolTable,
+    tree,
+    hasSyntaxErrors: metaEdErrorListener.messageCollection.length > failureCount,
+    changedEntities: topLevelEntitiesOf(tree),
+    removedEntities: topLevelEntitiesOf(previous.tree),
+    isFullReparse: true,
+  };
+}
+
+/**
+ * Whether every token from start up to but not including end is in one of the slices
+ */
+function isWithinSlices(slices: TokenSlice[], start: number, end: number): boolean {
+  let next: number = start;
+  slices.forEach((slice: TokenSlice) => {
+    if (slice.start <= next && slice.end > next) next = slice.end;
+  });
+  return next >= end;
+}
+
+function namespaceCount(tokens: TokenBuffer): number {
+  let count = 0;
+  for (let i = 0; i < tokens.size; i += 1) {
+    if (tokens.types[i] === MetaEdGrammar.BEGIN_NAMESPACE) count += 1;
+  }
+  return count;
+}
+
+/**
+ * For each slice, the index of the namespace it is in
+ */
+function namespaceIndexesOf(tokens: TokenBuffer, slices: TokenSlice[]): number[] {
+  let namespaceIndex = -1;
+  let tokenIndex = 0;
+  return slices.map((slice: TokenSlice) => {
+    for (; tokenIndex < slice.start; tokenIndex += 1) {
+      if (tokens.types[tokenIndex] === MetaEdGrammar.BEGIN_NAMESPACE) namespaceIndex += 1;
+    }
+    return namespaceIndex;
+  });
+}
+
+/**
+ * Parses one changed slice with topLevelEntity() from the whole new token stream, so the lookahead at its end and
+ * its token indexes are the same as in a parse of the whole text
+ */
+function parseSlice(
+  metaEdErrorListener: MetaEdErrorListener,
+  relexed: RelexResult,
+  slice: TokenSlice,
+  symbolTable: SymbolTable,
+): any {
+  return twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(relexed.text),
+    (parser: any) => {
+      parser.getTokenStream().seek(slice.start);
+      return parser.topLevelEntity();
+    },
+    relexed.tokenBuffer,
+    false,
+    symbolTable,
+  );
+}
+
+/**
+ * Moves the tokens of the contexts kept from the old tree to their new positions. Tokens before the edit are
+ * unchanged, and tokens after it move the same way IncrementalLexer moves them in the token buffer. Subtrees
+ * entirely before the edit, and the newly parsed contexts, are skipped.
+ */
+function rebaseTokens(tree: any, previous: IncrementalParse, relexed: RelexResult, newContexts: Set<any>) {
+  const { firstChangedToken, oldResumeToken, newResumeToken } = relexed;
+  if (oldResumeToken >= previous.tokenBuffer.size) return;
+
+  const resyncLine: number = previous.tokenBuffer.lines[oldResumeToken];
+  const lineDelta: number = relexed.tokenBuffer.lines[newResumeToken] - resyncLine;
+  const columnDelta: number = relexed.tokenBuffer.columns[newResumeToken] - previous.tokenBuffer.columns[oldResumeToken];
+  const delta: number = relexed.tokenBuffer.starts[newResumeToken] - previous.tokenBuffer.starts[oldResumeToken];
+  const inputStream = new antlr4.InputStream(relexed.text);
+  const rebased: Set<any> = new Set();
+
+  const rebaseToken = (token: any) => {
+    if (token == null || rebased.has(token) || token.tokenIndex < oldResumeToken) return;
+    rebased.add(token);
+    if (token.line === resyncLine) token.column += columnDelta;
+    token.line += lineDelta;
+    token.start += delta;
+    token.stop += delta;
+    token.tokenIndex += newResumeToken - oldResumeToken;
+    token.source = [token.source[0], inputStream];
+  };
+
+  const rebase = (node: any) => {
+    if (newContexts.has(node)) return;
+    if (node.symbol != null) {
+      rebaseToken(node.symbol);
+      return;
+    }
+    if (node.stop != null && node.stop.tokenIndex < firstChangedToken) return;
+    rebaseToken(node.start);
+    rebaseToken(node.stop);
+    if (node.children != null) node.children.forEach(rebase);
+  };
+  rebase(tree);
+}
+
+/**
+ * Reparses a previous parse after an edit to its text. The text is relexed with IncrementalLexer, and only the top
+ * level entities whose tokens changed are parsed again, each on its own with topLevelEntity(). Every other top level
+ * entity context is moved from the previous tree into the new one, along with the namespace and root contexts,
+ * with the positions of its tokens moved past the edit, so the previous tree is used up. Work in proportion to the
+ * size of the model is limited to scanning and shifting tokens, which is fast compared with parsing.
+ *
+ * The whole text is parsed again, as by parseIncrementally(), when the previous parse had syntax errors, when the
+ * edit changes anything outside of top level entities, or when a changed entity has a syntax error, so that syntax
+ * errors are always those of a parse of the whole text.
+ */
+export function reparse(
+  metaEdErrorListener: MetaEdErrorListener,
+  previous: IncrementalParse,
+  edit: TextEdit,
+): ReparseResult {
+  const relexed: RelexResult = relex(previous.text, previous.tokenBuffer, edit);
+  const { firstChangedToken, oldResumeToken, newResumeToken } = relexed;
+  if (previous.hasSyntaxErrors) return fullReparse(metaEdErrorListener, previous, relexed);
+
+  const oldSlices: TokenSlice[] = entitySlices(previous.tokenBuffer);
+  const newSlices: TokenSlice[] = entitySlices(relexed.tokenBuffer);
+  const oldEntities: any[] = topLevelEntitiesOf(previous.tree);
+  const oldNamespaces: any[] = previous.tree.namespace();
+  const newNamespaceIndexes: number[] = namespaceIndexesOf(relexed.tokenBuffer, newSlices);
+  if (
+    oldEntities.length !== oldSlices.length ||
+    oldEntities.some((entity: any, index: number) => entity.start.tokenIndex !== oldSlices[index].start) ||
+    !isWithinSlices(oldSlices, firstChangedToken, oldResumeToken) ||
+    !isWithinSlices(newSlices, firstChangedToken, newResumeToken) ||
+    namespaceCount(relexed.tokenBuffer) !== oldNamespaces.length ||
+    oldNamespaces.some((_namespace: any, index: number) => !newNamespaceIndexes.includes(index))
+  ) {
+    return fullReparse(metaEdErrorListener, previous, relexed);
+  }
+
+  const oldEntityByStart: Map<number, { slice: TokenSlice; entity: any }> = new Map();
+  oldSlices.forEach((slice: TokenSlice, index: number) =>
+    oldEntityByStart.set(slice.start, { slice, entity: oldEntities[index] }),
+  );
+  const unchangedEntity = (slice: TokenSlice): any | null => {
+    let oldStart: number = slice.start;
+    let oldEnd: number = slice.end;
+    if (slice.start >= newResumeToken) {
+      oldStart += oldResumeToken - newResumeToken;
+      oldEnd += oldResumeToken - newResumeToken;
+    } else if (slice.end > firstChangedToken) {
+      return null;
+    }
+    const old = oldEntityByStart.get(oldStart);
+    return old != null && old.slice.end === oldEnd ? old.entity : null;
+  };
+
+  const sliceFailures: ValidationFailure[] = [];
+  const sliceErrorListener = new MetaEdErrorListener(sliceFailures, metaEdErrorListener.validatorName);
+  const changedEntities: any[] = [];
+  let endsEarly = false;
+  const entities: any[] = newSlices.map((slice: TokenSlice) => {
+    const unchanged: any | null = unchangedEntity(slice);
+    if (unchanged != null) return unchanged;
+    const entity: any = parseSlice(sliceErrorListener, relexed, slice, previous.symbolTable);
+    changedEntities.push(entity);
+    // an entity that ends before its slice does leaves tokens that a whole parse would report
+    if (entity.stop == null || entity.stop.tokenIndex !== slice.end - 1) endsEarly = true;
+    return entity;
+  });
+  if (sliceFailures.length > 0 || endsEarly) return fullReparse(metaEdErrorListener, previous, relexed);
+
+  const keptEntities: Set<any> = new Set(entities);
+  const removedEntities: any[] = oldEntities.filter((entity: any) => !keptEntities.has(entity));
+  oldNamespaces.forEach((namespace: any, namespaceIndex: number) => {
+    const children: any[] = namespace.children;
+    const first: number = children.findIndex((child: any) => child instanceof MetaEdGrammar.TopLevelEntityContext);
+    let last: number = children.length - 1;
+    while (last >= 0 && !(children[last] instanceof MetaEdGrammar.TopLevelEntityContext)) last -= 1;
+    const namespaceEntities: any[] = entities.filter(
+      (_entity: any, index: number) => newNamespaceIndexes[index] === namespaceIndex,
+    );
+    namespaceEntities.forEach((entity: any) => {
+      entity.parentCtx = namespace;
+    });
+    namespace.children = [...children.slice(0, first), ...namespaceEntities, ...children.slice(last + 1)];
+  });
+  rebaseTokens(previous.tree, previous, relexed, new Set(changedEntities));
+
+  return {
+    text: relexed.text,
+    tokenBuffer: relexed.tokenBuffer,
+    symbolTable: previous.symbolTable,
+    tree: previous.tree,
+    hasSyntaxErrors: false,
+    changedEntities,
+    removedEntities,
+    isFullReparse: false,
+  };
+}
@@ -31,6 +31,17 @@ export class MetaEdErrorListener {
     });
   }
 
+  /**
+   * Reports syntax errors collected by another listener, such as one on a worker thread, as this listener's own
+   */
+  reportFailures(failures: ValidationFailure[]) {
+    failures.forEach((failure: ValidationFailure) => {
+      if (failure.sourceMap == null) return;
+      const { line, column, tokenText } = failure.sourceMap;
+      this.syntaxError(null, { text: tokenText }, line, column, failure.message);
+    });
+  }
+
   getMessageCollection(): ValidationFailure[] {
     return this.messageCollection;
   }
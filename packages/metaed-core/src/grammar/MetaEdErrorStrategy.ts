@@ -0,0 +1,108 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { InputMismatchException } from '@edfi/antlr4/error/Errors';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { startsTopLevelEntity } from './MetaEdParser';
+
+const NO_ENTITY = -1;
+
+/**
+ * The tokens to skip to on an error inside a top level entity: the start of the next entity, or the end of the
+ * namespace, or the start of another
+ */
+const resyncSet = {
+  contains: (tokenType: number): boolean =>
+    tokenType === antlr4.Token.EOF ||
+    tokenType === MetaEdGrammar.BEGIN_NAMESPACE ||
+    tokenType === MetaEdGrammar.END_NAMESPACE ||
+    startsTopLevelEntity[tokenType] === true,
+};
+
+/**
+ * The top level entity context a context is in, or null if it is not in one
+ */
+function enclosingEntity(context: any): any | null {
+  let current: any = context;
+  while (current != null && !(current instanceof MetaEdGrammar.TopLevelEntityContext)) current = current.parentCtx;
+  return current;
+}
+
+/**
+ * MetaEdErrorStrategy is an ANTLR error strategy that gives up on a top level entity at its first syntax error.
+ * It reports that error and then skips to the next top level entity keyword, End Namespace or Begin Namespace,
+ * with no single token insertion or deletion and no resynchronizing within the entity. That makes for one error per
+ * broken entity, and for recovery work in proportion to the tokens skipped, where DefaultErrorStrategy can report
+ * an error at every one of the many sync points in a badly broken entity.
+ *
+ * Errors outside of a top level entity, in the namespace lines, are recovered from as DefaultErrorStrategy does.
+ * The parse tree of an entity with an error ends at the error, followed by the skipped tokens as error nodes.
+ */
+export class MetaEdErrorStrategy extends antlr4.error.DefaultErrorStrategy {
+  // the start token index of the last top level entity an error was reported in
+  reportedEntityStart: number = NO_ENTITY;
+
+  reset(recognizer: any) {
+    super.reset(recognizer);
+    this.reportedEntityStart = NO_ENTITY;
+  }
+
+  /**
+   * Reports an error unless one has already been reported in the same top level entity
+   */
+  reportError(recognizer: any, e: any) {
+    const entity: any | null = enclosingEntity(recognizer._ctx);
+    if (entity != null && entity.start != null) {
+      if (entity.start.tokenIndex === this.reportedEntityStart) {
+        this.beginErrorCondition(recognizer);
+        return;
+      }
+      this.reportedEntityStart = entity.start.tokenIndex;
+    }
+    super.reportError(recognizer, e);
+  }
+
+  /**
+   * Skips to the next top level entity keyword, End Namespace or Begin Namespace. If the error was at the entity's
+   * own keyword, that is skipped first, so that the namespace does not try the same entity again.
+   */
+  recover(recognizer: any, e: any) {
+    const entity: any | null = enclosingEntity(recognizer._ctx);
+    if (entity == null) {
+      super.recover(recognizer, e);
+      return;
+    }
+    const input: any = recognizer.getInputStream();
+    if (entity.start != null && entity.start.tokenIndex === input.index && input.LA(1) !== antlr4.Token.EOF) {
+      recognizer.consume();
+    }
+    this.consumeUntil(recognizer, resyncSet);
+  }
+
+  /**
+   * Within a top level entity, fails the rule rather than conjuring up or deleting a token
+   */
+  recoverInline(recognizer: any): any {
+    if (enclosingEntity(recognizer._ctx) == null) return super.recoverInline(recognizer);
+    throw new InputMismatchException(recognizer);
+  }
+
+  /**
+   * Within a top level entity, fails the rule on an unexpected token rather than skipping ahead within the entity
+   */
+  sync(recognizer: any) {
+    if (enclosingEntity(recognizer._ctx) == null) {
+      super.sync(recognizer);
+      return;
+    }
+    if (this.inErrorRecoveryMode(recognizer)) return;
+    const nextTokens: any = recognizer.atn.nextTokens(recognizer.atn.states[recognizer.state]);
+    const tokenType: number = recognizer.getTokenStream().LA(1);
+    if (nextTokens.contains(antlr4.Token.EPSILON) || nextTokens.contains(tokenType)) return;
+    throw new InputMismatchException(recognizer);
+  }
+}
@@ -0,0 +1,205 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { BaseLexer } from './gen/BaseLexer';
+import { metaEdTokenFactory } from './MetaEdTokenFactory';
+import { SymbolTable } from './SymbolTable';
+
+const CHARACTER_TAB = 9;
+const CHARACTER_LINE_FEED = 10;
+const CHARACTER_CARRIAGE_RETURN = 13;
+const CHARACTER_SPACE = 32;
+
+// The most unrecognized characters lexed before giving up on the input as not MetaEd at all
+export const DEFAULT_ERROR_TOKEN_BUDGET = 1000;
+
+// Trie nodes are indexed by character code, and all MetaEd keyword literals are 7-bit ASCII
+const TRIE_WIDTH = 128;
+
+interface KeywordTrieNode {
+  next: (KeywordTrieNode | undefined)[];
+  // zero when no keyword literal ends at this node
+  tokenType: number;
+}
+
+interface KeywordMatch {
+  tokenType: number;
+  length: number;
+}
+
+function newKeywordTrieNode(): KeywordTrieNode {
+  return { next: new Array(TRIE_WIDTH), tokenType: 0 };
+}
+
+const isUpperCase = (c: number): boolean => c >= 65 && c <= 90;
+const isLowerCase = (c: number): boolean => c >= 97 && c <= 122;
+const isDigit = (c: number): boolean => c >= 48 && c <= 57;
+const isAlphanumeric = (c: number): boolean => isUpperCase(c) || isLowerCase(c) || isDigit(c);
+const isWhitespace = (c: number): boolean =>
+  c === CHARACTER_SPACE || c === CHARACTER_TAB || c === CHARACTER_LINE_FEED || c === CHARACTER_CARRIAGE_RETURN;
+
+/**
+ * Builds a trie of every BaseLexer literal token that starts with a letter, keyed by token type.
+ * Literal names come from the generated lexer in the form "'Domain Entity'", indexed by token type.
+ */
+function buildKeywordTrie(literalNames: (string | null)[]): KeywordTrieNode {
+  const root: KeywordTrieNode = newKeywordTrieNode();
+  literalNames.forEach((literalName: string | null, tokenType: number) => {
+    if (literalName == null) return;
+    const keyword: string = literalName.substring(1, literalName.length - 1);
+    if (!isUpperCase(keyword.charCodeAt(0)) && !isLowerCase(keyword.charCodeAt(0))) return;
+
+    let node: KeywordTrieNode = root;
+    for (let i = 0; i < keyword.length; i += 1) {
+      const c: number = keyword.charCodeAt(i);
+      if (node.next[c] == null) node.next[c] = newKeywordTrieNode();
+      node = node.next[c] as KeywordTrieNode;
+    }
+    node.tokenType = tokenType;
+  });
+  return root;
+}
+
+const keywordTrie: KeywordTrieNode = buildKeywordTrie(BaseLexer.prototype.literalNames);
+
+/**
+ * Returns the longest keyword literal at the current position of the input stream, or null if none matches.
+ */
+function longestKeywordMatch(input: any): KeywordMatch | null {
+  let result: KeywordMatch | null = null;
+  let node: KeywordTrieNode | undefined = keywordTrie;
+  let offset = 1;
+  for (;;) {
+    const c: number = input.LA(offset);
+    if (c < 0 || c >= TRIE_WIDTH) break;
+    node = node.next[c];
+    if (node == null) break;
+    if (node.tokenType !== 0) result = { tokenType: node.tokenType, length: offset };
+    offset += 1;
+  }
+  return result;
+}
+
+/**
+ * Returns the length of the ID token at the current position of the input stream, or zero if there is none.
+ * ID : UPPER_CASE (ALPHANUMERIC)*
+ */
+function idLength(input: any): number {
+  if (!isUpperCase(input.LA(1))) return 0;
+  let length = 1;
+  while (isAlphanumeric(input.LA(length + 1))) length += 1;
+  return length;
+}
+
+/**
+ * MetaEdLexer is the BaseLexer with a fast path for keywords and identifiers.
+ *
+ * BaseLexer has dozens of literal keywords, many multi-word and sharing prefixes, and the LexerATNSimulator must explore
+ * all of them against ID and WS for every word. MetaEdLexer first checks a precomputed trie of the keyword literals.
+ * Because ANTLR lexers take the longest match, with ties going to the rule defined first, and all keyword rules are
+ * defined before ID, a keyword wins over an ID of the same or shorter length. Anything else falls back to the
+ * LexerATNSimulator, so the token stream is identical to BaseLexer.
+ *
+ * TEXT tokens are created as TextTokens, which unescape their documentation text only on first access. ID tokens are
+ * created as IdTokens, which intern their names in the lexer's symbol table when first asked for their text or symbol
+ * ids. Each lexer starts with its own symbol table, which can be swapped for one shared by a whole run, or for none.
+ *
+ * Each unrecognized character is still its own ERROR_CHARACTER token, as the parser's error recovery and messages
+ * depend on it. Once more than errorTokenBudget of them have been lexed, an error is reported to the lexer's error
+ * listeners and lexing stops with EOF. Garbage input, like a binary file or a file in the wrong encoding, then costs
+ * a bounded amount of time, tokens and error reporting.
+ */
+export class MetaEdLexer extends BaseLexer {
+  symbolTable: SymbolTable | null = new SymbolTable();
+
+  errorTokenBudget: number = DEFAULT_ERROR_TOKEN_BUDGET;
+
+  errorTokenCount = 0;
+
+  constructor(input: any) {
+    super(input);
+    this._factory = metaEdTokenFactory;
+  }
+
+  reset() {
+    super.reset();
+    this.errorTokenCount = 0;
+  }
+
+  nextToken(): any {
+    const token: any = this.nextUnbudgetedToken();
+    if (token.type !== BaseLexer.ERROR_CHARACTER) return token;
+
+    this.errorTokenCount += 1;
+    if (this.errorTokenCount <= this.errorTokenBudget) return token;
+    this.getErrorListenerDispatch().syntaxError(
+      this,
+      null,
+      token.line,
+      token.column,
+      `too many unrecognized characters, lexing stopped after ${this.errorTokenBudget}`,
+      null,
+    );
+    this._hitEOF = true;
+    return super.nextToken();
+  }
+
+  nextUnbudgetedToken(): any {
+    if (this._input == null || this._hitEOF) return super.nextToken();
+
+    this.skipWhitespace();
+    if (this._hitEOF) return super.nextToken();
+
+    const keywordOrIdToken: any = this.matchKeywordOrId();
+    if (keywordOrIdToken != null) return keywordOrIdToken;
+
+    return super.nextToken();
+  }
+
+  /**
+   * WS : [ \t\n\r]+ -> skip
+   */
+  skipWhitespace() {
+    if (!isWhitespace(this._input.LA(1))) return;
+    while (isWhitespace(this._input.LA(1))) {
+      // consume through the simulator so line and column tracking stays consistent
+      this._interp.consume(this._input);
+    }
+    if (this._input.LA(1) === antlr4.Token.EOF) this._hitEOF = true;
+  }
+
+  matchKeywordOrId(): any {
+    const keywordMatch: KeywordMatch | null = longestKeywordMatch(this._input);
+    const matchedIdLength: number = idLength(this._input);
+
+    let tokenType: number;
+    let length: number;
+    if (keywordMatch != null && keywordMatch.length >= matchedIdLength) {
+      ({ tokenType, length } = keywordMatch);
+    } else if (matchedIdLength > 0) {
+      tokenType = BaseLexer.ID;
+      length = matchedIdLength;
+    } else {
+      return null;
+    }
+
+    this._token = null;
+    this._channel = antlr4.Token.DEFAULT_CHANNEL;
+    this._tokenStartCharIndex = this._input.index;
+    this._tokenStartColumn = this._interp.column;
+    this._tokenStartLine = this._interp.line;
+    this._text = null;
+    this._type = tokenType;
+
+    // keywords and identifiers never span lines
+    this._input.seek(this._input.index + length);
+    this._interp.column += length;
+
+    if (this._input.LA(1) === antlr4.Token.EOF) this._hitEOF = true;
+    return this.emit();
+  }
+}
@@ -0,0 +1,204 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import { Transition } from '@edfi/antlr4/atn/Transition';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+
+// Returned by a fixed lookahead prediction that cannot decide from the tokens it looks at
+const NO_PREDICTION = 0;
+
+// The alternatives of an optional (namespace PERIOD) block: the first matches it, the second skips it
+const QUALIFIED_ALT = 1;
+const UNQUALIFIED_ALT = 2;
+
+/**
+ * The token types that can start a top level entity, which is the FIRST set namespace() loops on, indexed by type
+ */
+export const startsTopLevelEntity: boolean[] = (() => {
+  const { atn } = MetaEdGrammar.prototype;
+  const firstSet: any = atn.nextTokens(atn.ruleToStartState[MetaEdGrammar.RULE_topLevelEntity]);
+  return MetaEdGrammar.prototype.symbolicNames.map((_name: string | null, tokenType: number) =>
+    firstSet.contains(tokenType),
+  );
+})();
+
+/**
+ * Predicts the alternative for a decision from a fixed number of upcoming tokens, without ATN simulation,
+ * or returns NO_PREDICTION to leave the decision to adaptivePredict
+ */
+type FixedLookaheadPrediction = (input: any) => number;
+
+/**
+ * The top level entities that share a leading keyword, told apart by what follows the entity name
+ */
+interface EntityFamily {
+  base: number;
+  extension: number;
+  subclass: number;
+}
+
+function decisionOf(atn: any, ruleIndex: number): number {
+  return atn.decisionToState.findIndex((state: any) => state.ruleIndex === ruleIndex);
+}
+
+/**
+ * Maps the index of the rule called by each alternative of a decision to the alternative number, for a decision
+ * where every alternative is a single rule call, as in topLevelEntity
+ */
+function altsByCalledRule(atn: any, decision: number): Map<number, number> {
+  const result: Map<number, number> = new Map();
+  atn.decisionToState[decision].transitions.forEach((alternative: any, index: number) => {
+    let state: any = alternative.target;
+    while (state.transitions[0].serializationType !== Transition.RULE) state = state.transitions[0].target;
+    result.set(state.transitions[0].ruleIndex, index + 1);
+  });
+  return result;
+}
+
+/**
+ * Each top level entity keyword other than Association, Common, Domain Entity and Interchange starts only one
+ * alternative, so is decided by LA(1) alone. For those four, the base entity, extension and subclass alternatives
+ * share the keyword and the name, and are decided by the token after the name: ADDITIONS or the PERIOD of a
+ * namespace qualified extendee for an extension, BASED_ON for a subclass, and anything that can start the rest of
+ * a base entity for the base entity. These are exactly the tokens where adaptivePredict has only one viable
+ * alternative left, so the predictions are the same. Anything else is a syntax error, left to adaptivePredict
+ * so that error reporting is unchanged.
+ */
+function topLevelEntityPrediction(atn: any): FixedLookaheadPrediction {
+  const alts: Map<number, number> = altsByCalledRule(atn, decisionOf(atn, MetaEdGrammar.RULE_topLevelEntity));
+  const altOf = (ruleIndex: number): number => alts.get(ruleIndex) ?? NO_PREDICTION;
+
+  const singleAlts: Map<number, number> = new Map([
+    [MetaEdGrammar.ABSTRACT_ENTITY, altOf(MetaEdGrammar.RULE_abstractEntity)],
+    [MetaEdGrammar.CHOICE, altOf(MetaEdGrammar.RULE_choice)],
+    [MetaEdGrammar.SHARED_DECIMAL, altOf(MetaEdGrammar.RULE_sharedDecimal)],
+    [MetaEdGrammar.SHARED_INTEGER, altOf(MetaEdGrammar.RULE_sharedInteger)],
+    [MetaEdGrammar.SHARED_SHORT, altOf(MetaEdGrammar.RULE_sharedShort)],
+    [MetaEdGrammar.SHARED_STRING, altOf(MetaEdGrammar.RULE_sharedString)],
+    [MetaEdGrammar.DESCRIPTOR, altOf(MetaEdGrammar.RULE_descriptor)],
+    [MetaEdGrammar.ENUMERATION, altOf(MetaEdGrammar.RULE_enumeration)],
+    [MetaEdGrammar.INLINE_COMMON, altOf(MetaEdGrammar.RULE_inlineCommon)],
+    [MetaEdGrammar.DOMAIN, altOf(MetaEdGrammar.RULE_domain)],
+    [MetaEdGrammar.SUBDOMAIN, altOf(MetaEdGrammar.RULE_subdomain)],
+  ]);
+
+  const families: Map<number, EntityFamily> = new Map([
+    [
+      MetaEdGrammar.ASSOCIATION,
+      {
+        base: altOf(MetaEdGrammar.RULE_association),
+        extension: altOf(MetaEdGrammar.RULE_associationExtension),
+        subclass: altOf(MetaEdGrammar.RULE_associationSubclass),
+      },
+    ],
+    [
+      MetaEdGrammar.COMMON,
+      {
+        base: altOf(MetaEdGrammar.RULE_common),
+        extension: altOf(MetaEdGrammar.RULE_commonExtension),
+        subclass: altOf(MetaEdGrammar.RULE_commonSubclass),
+      },
+    ],
+    [
+      MetaEdGrammar.DOMAIN_ENTITY,
+      {
+        base: altOf(MetaEdGrammar.RULE_domainEntity),
+        extension: altOf(MetaEdGrammar.RULE_domainEntityExtension),
+        subclass: altOf(MetaEdGrammar.RULE_domainEntitySubclass),
+      },
+    ],
+    [
+      MetaEdGrammar.INTERCHANGE,
+      {
+        base: altOf(MetaEdGrammar.RULE_interchange),
+        extension: altOf(MetaEdGrammar.RULE_interchangeExtension),
+        subclass: NO_PREDICTION,
+      },
+    ],
+  ]);
+
+  return (input: any): number => {
+    const keyword: number = input.LA(1);
+    const singleAlt: number | undefined = singleAlts.get(keyword);
+    if (singleAlt != null) return singleAlt;
+
+    const family: EntityFamily | undefined = families.get(keyword);
+    if (family == null || input.LA(2) !== MetaEdGrammar.ID) return NO_PREDICTION;
+    switch (input.LA(3)) {
+      case MetaEdGrammar.ADDITIONS:
+      case MetaEdGrammar.PERIOD:
+        return family.extension;
+      case MetaEdGrammar.BASED_ON:
+        return family.subclass;
+      case MetaEdGrammar.METAED_ID:
+      case MetaEdGrammar.DEPRECATED:
+      case MetaEdGrammar.DOCUMENTATION:
+        return family.base;
+      default:
+        return NO_PREDICTION;
+    }
+  };
+}
+
+/**
+ * baseName, extendeeName, propertyName and sharedPropertyType all have the form (namespace PERIOD)? local, with a
+ * single ID for each of namespace and local, and the decision is whether to match the optional block. An ID followed
+ * by PERIOD can only be a namespace, as PERIOD never follows a local name. An ID followed by anything else can only be
+ * the local name, and adaptivePredict also skips the block there even when the token after the ID is a syntax error,
+ * as skipping it is the alternative that reached the end of the rule. Anything other than an ID at LA(1) is left to
+ * adaptivePredict.
+ */
+function qualifiedNamePrediction(input: any): number {
+  if (input.LA(1) !== MetaEdGrammar.ID) return NO_PREDICTION;
+  return input.LA(2) === MetaEdGrammar.PERIOD ? QUALIFIED_ALT : UNQUALIFIED_ALT;
+}
+
+const qualifiedNameRules: number[] = [
+  MetaEdGrammar.RULE_baseName,
+  MetaEdGrammar.RULE_extendeeName,
+  MetaEdGrammar.RULE_propertyName,
+  MetaEdGrammar.RULE_sharedPropertyType,
+];
+
+let fixedLookaheadPredictions: (FixedLookaheadPrediction | undefined)[] | null = null;
+
+/**
+ * Fixed lookahead predictions indexed by decision number, built once from the generated ATN
+ */
+function fixedLookaheadPredictionsFor(atn: any): (FixedLookaheadPrediction | undefined)[] {
+  if (fixedLookaheadPredictions == null) {
+    const predictions: (FixedLookaheadPrediction | undefined)[] = new Array(atn.decisionToState.length);
+    predictions[decisionOf(atn, MetaEdGrammar.RULE_topLevelEntity)] = topLevelEntityPrediction(atn);
+    qualifiedNameRules.forEach((ruleIndex: number) => {
+      predictions[decisionOf(atn, ruleIndex)] = qualifiedNamePrediction;
+    });
+    fixedLookaheadPredictions = predictions;
+  }
+  return fixedLookaheadPredictions;
+}
+
+/**
+ * MetaEdParser is the generated MetaEdGrammar parser with its most frequently made decisions answered by a bounded
+ * fixed lookahead before falling back to ATN simulation. The grammar itself, and so the parse tree context classes
+ * the builders depend on, are unchanged.
+ */
+export class MetaEdParser extends MetaEdGrammar {
+  constructor(input: any) {
+    super(input);
+    const simulator: any = this._interp;
+    const adaptivePredict: (input: any, decision: number, outerContext: any) => number = simulator.adaptivePredict;
+    const predictions: (FixedLookaheadPrediction | undefined)[] = fixedLookaheadPredictionsFor(simulator.atn);
+
+    simulator.adaptivePredict = (tokenStream: any, decision: number, outerContext: any): number => {
+      const prediction: FixedLookaheadPrediction | undefined = predictions[decision];
+      if (prediction != null) {
+        const alt: number = prediction(tokenStream);
+        if (alt !== NO_PREDICTION) return alt;
+      }
+      return adaptivePredict.call(simulator, tokenStream, decision, outerContext);
+    };
+  }
+}
@@ -5,9 +5,9 @@
 
 /* eslint-disable max-classes-per-file */
 import antlr4 from '@edfi/antlr4';
-import { MetaEdGrammar } from './gen/MetaEdGrammar';
 import { MetaEdGrammarListener } from './gen/MetaEdGrammarListener';
-import { BaseLexer } from './gen/BaseLexer';
+import { MetaEdLexer } from './MetaEdLexer';
+import { MetaEdParser } from './MetaEdParser';
 
 /**
  * ErrorListener is an ANTLR4 ErrorListener used in unit testing to collect syntax errors from the ANTLR parser.
@@ -28,8 +28,8 @@ class ErrorListener {
 
 function listen(metaEdText: string, listener: MetaEdGrammarListener): string[] {
   const errorListener = new ErrorListener();
-  const lexer = new BaseLexer(new antlr4.InputStream(metaEdText));
-  const parser = new MetaEdGrammar(new antlr4.CommonTokenStream(lexer, undefined));
+  const lexer = new MetaEdLexer(new antlr4.InputStream(metaEdText));
+  const parser = new MetaEdParser(new antlr4.CommonTokenStream(lexer, undefined));
   lexer.removeErrorListeners();
   lexer.addErrorListener(errorListener);
   parser.removeErrorListeners();
@@ -0,0 +1,123 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable max-classes-per-file */
+import antlr4 from '@edfi/antlr4/index';
+import { BaseLexer } from './gen/BaseLexer';
+import { SymbolTable } from './SymbolTable';
+
+/**
+ * Removes the surrounding double quotes from TEXT token text, and unescapes doubled double quotes
+ * TEXT : '"' ( '""' | ~["] )* '"'
+ */
+export function unescapeText(rawText: string): string {
+  return rawText.substr(1, rawText.length - 2).replace(/""/g, '"');
+}
+
+/**
+ * TextToken is a TEXT token that holds only its start and stop offsets into the input stream, like any other
+ * token from the lexer, but also memoizes its unescaped text. TEXT tokens carry documentation and make up most of the
+ * bytes in a model, so the text is neither copied nor unescaped until first asked for.
+ */
+export class TextToken extends antlr4.CommonToken {
+  unescapedTextCache: string | null = null;
+
+  get unescapedText(): string {
+    if (this.unescapedTextCache == null) this.unescapedTextCache = unescapeText(this.text);
+    return this.unescapedTextCache;
+  }
+}
+
+// The symbol id of an IdToken that has not interned its name yet
+const NOT_INTERNED = -2;
+
+/**
+ * IdToken is an ID token with the symbol table of the lexer that created it. Like any other token, it holds only its
+ * start and stop offsets into the input stream. Its name is interned on first use of its text or symbol id, after
+ * which its text is the canonical string for the name, so getText() on a name, as the builders call it, gives the one
+ * string the whole table has for it. Without a symbol table, the text comes from the input stream on every use and
+ * the symbol id is -1.
+ *
+ * Each terminal of a parse tree holds a single token object for its token index, so a name in the tree is interned
+ * at most once. Tokens CompactTokenStream creates again while parsing are never interned, unless asked for.
+ */
+export class IdToken extends antlr4.CommonToken {
+  symbolTable: SymbolTable | null = null;
+
+  symbolIdCache: number = NOT_INTERNED;
+
+  get text(): string {
+    if (this.symbolIdCache === NOT_INTERNED && this.symbolTable != null) this.intern(this.symbolTable);
+    return super.text;
+  }
+
+  set text(text: string) {
+    super.text = text;
+  }
+
+  get symbolId(): number {
+    if (this.symbolIdCache === NOT_INTERNED) {
+      if (this.symbolTable == null) this.symbolIdCache = -1;
+      else this.intern(this.symbolTable);
+    }
+    return this.symbolIdCache;
+  }
+
+  intern(symbolTable: SymbolTable) {
+    this.symbolIdCache = symbolTable.intern(super.text);
+    super.text = symbolTable.nameOf(this.symbolIdCache);
+  }
+}
+
+/**
+ * An ANTLR4 TokenFactory that creates TextTokens for TEXT, IdTokens for ID, and otherwise does what
+ * CommonTokenFactory.DEFAULT does. It never copies text out of the input stream.
+ */
+export class MetaEdTokenFactory {
+  create(
+    source: any,
+    type: number,
+    text: string | null,
+    channel: number,
+    start: number,
+    stop: number,
+    line: number,
+    column: number,
+  ): any {
+    if (type === BaseLexer.ID) return this.createIdToken(source, text, channel, start, stop, line, column);
+
+    const token: any =
+      type === BaseLexer.TEXT
+        ? new TextToken(source, type, channel, start, stop)
+        : new antlr4.CommonToken(source, type, channel, start, stop);
+    token.line = line;
+    token.column = column;
+    if (text != null) token.text = text;
+    return token;
+  }
+
+  /**
+   * The source is the lexer and input stream pair, and the lexer's symbol table is the one the name is interned in
+   */
+  // eslint-disable-next-line class-methods-use-this
+  createIdToken(
+    source: any,
+    text: string | null,
+    channel: number,
+    start: number,
+    stop: number,
+    line: number,
+    column: number,
+  ): IdToken {
+    const token: any = new IdToken(source, BaseLexer.ID, channel, start, stop);
+    token.line = line;
+    token.column = column;
+    if (source[0] != null && source[0].symbolTable != null) token.symbolTable = source[0].symbolTable;
+    if (text != null) token.text = text;
+    return token;
+  }
+}
+
+export const metaEdTokenFactory: MetaEdTokenFactory = new MetaEdTokenFactory();
@@ -3,16 +3,30 @@
 // The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
 // See the LICENSE and NOTICES files in the project root for more information.
 
+/* eslint-disable no-underscore-dangle */
 import antlr4 from '@edfi/antlr4/index';
-import { BaseLexer } from './gen/BaseLexer';
+import { ParseCancellationException } from '@edfi/antlr4/error/Errors';
 import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdParser } from './MetaEdParser';
 import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdErrorStrategy } from './MetaEdErrorStrategy';
+import { MetaEdLexer } from './MetaEdLexer';
+import { CompactTokenStream } from './CompactTokenStream';
+import { utf8BufferStreamFromFile } from './Utf8BufferStream';
+import { TokenBuffer } from './TokenBuffer';
+import { lexInParallel } from './ChunkedLexer';
+import { parserPool, PooledParser } from './ParserPool';
+import { SymbolTable } from './SymbolTable';
 
 export type ParseTreeBuilder = (metaEdErrorListener: MetaEdErrorListener, metaEdContents: string) => MetaEdGrammar;
 
-function errorListeningParser(metaEdErrorListener: MetaEdErrorListener, metaEdContents: string): MetaEdGrammar {
-  const lexer = new BaseLexer(new antlr4.InputStream(metaEdContents));
-  const parser = new MetaEdGrammar(new antlr4.CommonTokenStream(lexer));
+function errorListeningParserFor(
+  metaEdErrorListener: MetaEdErrorListener,
+  charStream: any,
+  tokenBuffer: TokenBuffer = new TokenBuffer(),
+): MetaEdGrammar {
+  const lexer = new MetaEdLexer(charStream);
+  const parser = new MetaEdParser(new CompactTokenStream(lexer, tokenBuffer));
   lexer.removeErrorListeners();
   lexer.addErrorListener(metaEdErrorListener);
   parser.removeErrorListeners();
@@ -20,6 +34,10 @@ function errorListeningParser(metaEdErrorListener: MetaEdErrorListener, metaEdCo
   return parser;
 }
 
+function errorListeningParser(metaEdErrorListener: MetaEdErrorListener, metaEdContents: string): MetaEdGrammar {
+  return errorListeningParserFor(metaEdErrorListener, new antlr4.InputStream(metaEdContents));
+}
+
 export function buildMetaEd(metaEdErrorListener: MetaEdErrorListener, metaEdContents: string): MetaEdGrammar {
   return errorListeningParser(metaEdErrorListener, metaEdContents).metaEd();
 }
@@ -27,3 +45,133 @@ export function buildMetaEd(metaEdErrorListener: MetaEdErrorListener, metaEdCont
 export function buildTopLevelEntity(metaEdErrorListener: MetaEdErrorListener, metaEdContents: string): MetaEdGrammar {
   return errorListeningParser(metaEdErrorListener, metaEdContents).topLevelEntity();
 }
+
+/**
+ * Parses a .metaed file read as UTF-8 bytes, without decoding the file contents to a string first.
+ * Token start and stop indexes are byte offsets into the file.
+ *
+ * This is a standalone API for tools that parse a single file. The pipeline does not use it, as it loads files as
+ * strings for the file index, which maps character positions in the concatenation of all files back to files.
+ */
+export function buildMetaEdFromFile(metaEdErrorListener: MetaEdErrorListener, filePath: string): MetaEdGrammar {
+  return errorListeningParserFor(metaEdErrorListener, utf8BufferStreamFromFile(filePath)).metaEd();
+}
+
+/**
+ * Parses with the given start rule in two stages. The first stage uses SLL prediction, which is much faster than
+ * full LL and parses nearly all real MetaEd the same, with a BailErrorStrategy that gives up at the first syntax error
+ * without reporting it. Only if that fails is the input parsed again from the same tokens with full LL prediction and
+ * the default error strategy, so error messages and parse trees are the same as parsing with LL alone.
+ * If resyncOnEntityError is set, the second stage uses MetaEdErrorStrategy instead, for one error per broken entity.
+ * The lexer and parser come from this thread's parser pool. ID names are interned in the given symbol table, so that
+ * parses can share one, or else in one of the parse's own, and not at all if it is null.
+ */
+export function twoStageParse(
+  metaEdErrorListener: MetaEdErrorListener,
+  charStream: any,
+  startRule: (parser: any) => any,
+  tokenBuffer: TokenBuffer = new TokenBuffer(),
+  resyncOnEntityError: boolean = false,
+  symbolTable: SymbolTable | null = new SymbolTable(),
+): any {
+  const pooledParser: PooledParser = parserPool.acquire(metaEdErrorListener, charStream, tokenBuffer, symbolTable);
+  const parser: any = pooledParser.parser;
+  try {
+    parser.removeErrorListeners();
+    parser._errHandler = new antlr4.error.BailErrorStrategy();
+    parser._interp.predictionMode = antlr4.atn.PredictionMode.SLL;
+    try {
+      return startRule(parser);
+    } catch (error) {
+      if (!(error instanceof ParseCancellationException)) throw error;
+    }
+
+    // the lexer has already reported any errors for the tokens it lexed, and is not restarted
+    parser.reset();
+    parser._errHandler = resyncOnEntityError ? new MetaEdErrorStrategy() : new antlr4.error.DefaultErrorStrategy();
+    parser._interp.predictionMode = antlr4.atn.PredictionMode.LL;
+    parser.addErrorListener(metaEdErrorListener);
+    return startRule(parser);
+  } finally {
+    parserPool.release(pooledParser);
+  }
+}
+
+export function buildMetaEdTwoStage(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  resyncOnEntityError: boolean = false,
+): MetaEdGrammar {
+  return twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    (parser) => parser.metaEd(),
+    new TokenBuffer(),
+    resyncOnEntityError,
+  );
+}
+
+export function buildTopLevelEntityTwoStage(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+): MetaEdGrammar {
+  return twoStageParse(metaEdErrorListener, new antlr4.InputStream(metaEdContents), (parser) => parser.topLevelEntity());
+}
+
+/**
+ * Parses MetaEd after lexing it in chunks on worker threads. See lexInParallel().
+ */
+export async function buildMetaEdInParallel(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  parallelism?: number,
+  dfaCacheFilePath: string | null = null,
+): Promise<MetaEdGrammar> {
+  const tokenBuffer: TokenBuffer = await lexInParallel(metaEdContents, parallelism, metaEdErrorListener, dfaCacheFilePath);
+  return twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    (parser) => parser.metaEd(),
+    tokenBuffer,
+  );
+}
+
+/**
+ * Parses MetaEd from tokens already lexed from it into a TokenBuffer ending with EOF, as by lexChunk().
+ */
+export function buildMetaEdFromTokens(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  tokenBuffer: TokenBuffer,
+  resyncOnEntityError: boolean = false,
+  symbolTable: SymbolTable = new SymbolTable(),
+): MetaEdGrammar {
+  return twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    (parser) => parser.metaEd(),
+    tokenBuffer,
+    resyncOnEntityError,
+    symbolTable,
+  );
+}
+
+/**
+ * Parses a single top level entity from tokens already lexed into a TokenBuffer ending with EOF.
+ */
+export function buildTopLevelEntityFromTokens(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  tokenBuffer: TokenBuffer,
+  resyncOnEntityError: boolean = false,
+  symbolTable: SymbolTable | null = new SymbolTable(),
+): MetaEdGrammar {
+  return twoStageParse(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    (parser) => parser.topLevelEntity(),
+    tokenBuffer,
+    resyncOnEntityError,
+    symbolTable,
+  );
+}
@@ -0,0 +1,148 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { RecognitionException } from '@edfi/antlr4/error/Errors';
+import { ErrorNodeImpl, TerminalNodeImpl } from '@edfi/antlr4/tree/Tree';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+
+// Node kinds, each followed by its fields in the encoding:
+// RULE_NODE ruleIndex childCount startTokenIndex stopTokenIndex hasException, then its children
+// TERMINAL_NODE or ERROR_NODE tokenIndex
+// CONJURED_TERMINAL_NODE or CONJURED_ERROR_NODE tokenType line column textIndex, for a token not in the token stream
+const RULE_NODE = 0;
+const TERMINAL_NODE = 1;
+const ERROR_NODE = 2;
+const CONJURED_TERMINAL_NODE = 3;
+const CONJURED_ERROR_NODE = 4;
+
+const NO_TOKEN = -1;
+
+/**
+ * A MetaEdGrammar parse tree flattened into an Int32Array in depth first order, so it can be posted between
+ * worker threads. Tokens are indexes into the token stream the tree was parsed from, offset by tokenIndexOffset,
+ * except for tokens the error strategy conjured up, which are kept with their text.
+ */
+export interface EncodedParseTree {
+  nodes: Int32Array;
+  texts: string[];
+}
+
+/**
+ * Encodes a parse tree built from a token stream of tokenCount tokens, the last of which is EOF. Token indexes are
+ * encoded with tokenIndexOffset added, so the tree can be decoded against a longer token stream the tokens came from.
+ */
+export function encodeParseTree(tree: any, tokenIndexOffset: number, tokenCount: number): EncodedParseTree {
+  const nodes: number[] = [];
+  const texts: string[] = [];
+  const isInStream = (token: any): boolean =>
+    token != null && token.tokenIndex >= 0 && token.tokenIndex < tokenCount - 1 && token.type !== antlr4.Token.EOF;
+  const tokenIndexOf = (token: any): number => (token == null ? NO_TOKEN : token.tokenIndex + tokenIndexOffset);
+
+  const encode = (node: any) => {
+    if (node instanceof TerminalNodeImpl) {
+      const isError: boolean = node instanceof ErrorNodeImpl;
+      const token: any = node.symbol;
+      if (isInStream(token)) {
+        nodes.push(isError ? ERROR_NODE : TERMINAL_NODE, tokenIndexOf(token));
+      } else {
+        const kind: number = isError ? CONJURED_ERROR_NODE : CONJURED_TERMINAL_NODE;
+        nodes.push(kind, token.type, token.line, token.column, texts.length);
+        texts.push(token.text);
+      }
+      return;
+    }
+    const children: any[] = node.children == null ? [] : node.children;
+    nodes.push(
+      RULE_NODE,
+      node.ruleIndex,
+      children.length,
+      tokenIndexOf(node.start),
+      tokenIndexOf(node.stop),
+      node.exception == null ? 0 : 1,
+    );
+    children.forEach(encode);
+  };
+  encode(tree);
+  return { nodes: Int32Array.from(nodes), texts };
+}
+
+let contextClasses: any[] | null = null;
+
+/**
+ * The generated context class for each rule index, named after the rule
+ */
+export function contextClassesByRuleIndex(): any[] {
+  if (contextClasses == null) {
+    contextClasses = MetaEdGrammar.prototype.ruleNames.map(
+      (ruleName: string) => (MetaEdGrammar as any)[`${ruleName[0].toUpperCase()}${ruleName.substring(1)}Context`],
+    );
+  }
+  return contextClasses;
+}
+
+/**
+ * Rebuilds a parse tree of generated context classes from its encoding, with tokens from the given token stream,
+ * which must be a CompactTokenStream or other stream already holding every token the tree refers to. Contexts get
+ * the given parser, and the root gets the given parent. A context that had a recognition exception gets one in its
+ * place, without the original's details.
+ */
+export function decodeParseTree(encoded: EncodedParseTree, parser: any, tokenStream: any, parent: any = null): any {
+  const { nodes, texts } = encoded;
+  const classes: any[] = contextClassesByRuleIndex();
+  const tokenSource: any = tokenStream.getTokenSource();
+  let position = 0;
+
+  const tokenAt = (tokenIndex: number): any => (tokenIndex === NO_TOKEN ? null : tokenStream.get(tokenIndex));
+  const conjuredToken = (): any => {
+    const token: any = tokenSource._factory.create(
+      tokenSource._tokenFactorySourcePair,
+      nodes[position + 1],
+      texts[nodes[position + 4]],
+      antlr4.Token.DEFAULT_CHANNEL,
+      -1,
+      -1,
+      nodes[position + 2],
+      nodes[position + 3],
+    );
+    token.tokenIndex = -1;
+    return token;
+  };
+
+  const decode = (parentContext: any): any => {
+    const kind: number = nodes[position];
+    if (kind === RULE_NODE) {
+      const ContextClass: any = classes[nodes[position + 1]];
+      const childCount: number = nodes[position + 2];
+      const context: any = new ContextClass(parser, parentContext, -1);
+      context.start = tokenAt(nodes[position + 3]);
+      context.stop = tokenAt(nodes[position + 4]);
+      if (nodes[position + 5] === 1) {
+        context.exception = new RecognitionException({ message: '', recognizer: null, input: tokenStream, ctx: context });
+      }
+      position += 6;
+      if (childCount > 0) {
+        context.children = [];
+        for (let i = 0; i < childCount; i += 1) context.children.push(decode(context));
+      }
+      return context;
+    }
+
+    let token: any;
+    if (kind === TERMINAL_NODE || kind === ERROR_NODE) {
+      token = tokenAt(nodes[position + 1]);
+      position += 2;
+    } else {
+      token = conjuredToken();
+      position += 5;
+    }
+    const node: any =
+      kind === ERROR_NODE || kind === CONJURED_ERROR_NODE ? new ErrorNodeImpl(token) : new TerminalNodeImpl(token);
+    node.parentCtx = parentContext;
+    return node;
+  };
+  return decode(parent);
+}
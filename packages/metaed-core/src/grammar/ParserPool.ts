@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { CompactTokenStream } from './CompactTokenStream';
+import { DEFAULT_ERROR_TOKEN_BUDGET, MetaEdLexer } from './MetaEdLexer';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdParser } from './MetaEdParser';
+import { SymbolTable } from './SymbolTable';
+import { TokenBuffer } from './TokenBuffer';
+
+// Enough for the parses one thread has in progress at a time, which for the pipeline is one
+const DEFAULT_MAX_IDLE = 4;
+
+/**
+ * A lexer and parser pair handed out by a ParserPool, with the parser reading tokens from the lexer
+ */
+export interface PooledParser {
+  lexer: MetaEdLexer;
+  parser: MetaEdParser;
+}
+
+/**
+ * ParserPool hands out MetaEdLexer and MetaEdParser pairs reset for a new input, and takes them back for reuse
+ * once parsing is done, saving the construction of lexer and parser ATN simulators for every file parsed.
+ *
+ * Every pair shares the DFAs and prediction context cache of the generated lexer and parser, which are static, so
+ * what one pair learns while predicting is used by all the others. JavaScript gives each worker thread its own copy
+ * of every module, so each thread has its own pool and its own DFAs, and nothing is shared between threads that
+ * would need locking. A worker thread warms its DFAs without relearning them by calling loadDfaCache() on start.
+ *
+ * Parse trees keep a reference to the parser that built them, which only uses it for the token source, and that
+ * stays the same lexer when the pair is reused.
+ */
+export class ParserPool {
+  maxIdle: number;
+
+  idle: PooledParser[] = [];
+
+  constructor(maxIdle: number = DEFAULT_MAX_IDLE) {
+    this.maxIdle = maxIdle;
+  }
+
+  /**
+   * Hands out a lexer and parser pair reset to read the given char stream, reporting syntax errors to the given
+   * listener, with the default error strategy and LL prediction, building parse trees and without parse listeners.
+   * Tokens go into the given token buffer, which can be one already filled elsewhere, as for CompactTokenStream.
+   * ID tokens intern their names in the given symbol table, by default one of the parse's own, or not at all if null.
+   */
+  acquire(
+    metaEdErrorListener: MetaEdErrorListener,
+    charStream: any,
+    tokenBuffer: TokenBuffer = new TokenBuffer(),
+    symbolTable: SymbolTable | null = new SymbolTable(),
+  ): PooledParser {
+    let pooledParser: PooledParser | undefined = this.idle.pop();
+    if (pooledParser == null) {
+      const newLexer = new MetaEdLexer(charStream);
+      pooledParser = { lexer: newLexer, parser: new MetaEdParser(new CompactTokenStream(newLexer, tokenBuffer)) };
+    } else {
+      // both setters reset the recognizer before switching input
+      (pooledParser.lexer as any).inputStream = charStream;
+      (pooledParser.parser as any).setTokenStream(new CompactTokenStream(pooledParser.lexer, tokenBuffer));
+    }
+
+    const lexer: any = pooledParser.lexer;
+    const parser: any = pooledParser.parser;
+    lexer.errorTokenBudget = DEFAULT_ERROR_TOKEN_BUDGET;
+    lexer.symbolTable = symbolTable;
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(metaEdErrorListener);
+    parser._errHandler = new antlr4.error.DefaultErrorStrategy();
+    parser._interp.predictionMode = antlr4.atn.PredictionMode.LL;
+    parser.removeErrorListeners();
+    parser.addErrorListener(metaEdErrorListener);
+    parser.removeParseListeners();
+    parser.buildParseTrees = true;
+    return pooledParser;
+  }
+
+  /**
+   * Takes back a pair handed out by acquire(), once its parse is done. Parse trees it built stay valid.
+   */
+  release(pooledParser: PooledParser) {
+    pooledParser.lexer.removeErrorListeners();
+    pooledParser.parser.removeErrorListeners();
+    pooledParser.parser.removeParseListeners();
+    if (this.idle.length < this.maxIdle) this.idle.push(pooledParser);
+  }
+}
+
+/**
+ * The pool for parsers on this thread
+ */
+export const parserPool = new ParserPool();
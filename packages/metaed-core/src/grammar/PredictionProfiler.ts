@@ -0,0 +1,166 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import { CompactTokenStream } from './CompactTokenStream';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { MetaEdLexer } from './MetaEdLexer';
+import { MetaEdParser } from './MetaEdParser';
+
+/**
+ * What it cost to predict one decision over a parse
+ */
+export interface DecisionProfile {
+  decision: number;
+  // the rule the decision is in
+  ruleName: string;
+  invocations: number;
+  // invocations answered by MetaEdParser's fixed lookahead, without ATN simulation
+  fixedLookaheadPredictions: number;
+  // invocations where SLL prediction found a conflict and fell back to full context LL prediction
+  fullContextFallbacks: number;
+  // DFA states and edges that were missing, and so computed by ATN simulation
+  dfaMisses: number;
+  // the most tokens looked at by a single invocation with ATN simulation
+  maxLookahead: number;
+  ambiguities: number;
+  totalMilliseconds: number;
+}
+
+function newDecisionProfile(decision: number, ruleName: string): DecisionProfile {
+  return {
+    decision,
+    ruleName,
+    invocations: 0,
+    fixedLookaheadPredictions: 0,
+    fullContextFallbacks: 0,
+    dfaMisses: 0,
+    maxLookahead: 0,
+    ambiguities: 0,
+    totalMilliseconds: 0,
+  };
+}
+
+/**
+ * PredictionProfiler collects a DecisionProfile for every decision a MetaEdParser predicts with adaptivePredict,
+ * the counterpart of ANTLR's ProfilingATNSimulator, which the JavaScript runtime does not have. It wraps the
+ * prediction methods of the parser's own ParserATNSimulator, so parsers sharing its DFAs are not profiled, and
+ * should only be attached to a parser that will not be reused, as the wrappers stay for its lifetime.
+ *
+ * Decisions the generated parser makes with a switch on the next token never reach the simulator, so are not
+ * profiled. Those each cost a single token lookup.
+ */
+export class PredictionProfiler {
+  profiles: DecisionProfile[];
+
+  constructor(parser: any) {
+    const simulator: any = parser._interp;
+    const { ruleNames } = parser;
+    this.profiles = simulator.atn.decisionToState.map((state: any, decision: number) =>
+      newDecisionProfile(decision, ruleNames[state.ruleIndex]),
+    );
+
+    let current: DecisionProfile | null = null;
+    let currentInput: any = null;
+    let startIndex = 0;
+    let simulated = false;
+    const lookedAt = () => {
+      if (current == null) return;
+      current.maxLookahead = Math.max(current.maxLookahead, currentInput.index - startIndex + 1);
+    };
+
+    const wrap = (methodName: string, before: (...args: any[]) => void) => {
+      const method: (...args: any[]) => any = simulator[methodName];
+      simulator[methodName] = (...args: any[]): any => {
+        before(...args);
+        return method.apply(simulator, args);
+      };
+    };
+
+    const adaptivePredict: (input: any, decision: number, outerContext: any) => number = simulator.adaptivePredict;
+    simulator.adaptivePredict = (input: any, decision: number, outerContext: any): number => {
+      const profile: DecisionProfile = this.profiles[decision];
+      current = profile;
+      currentInput = input;
+      startIndex = input.index;
+      simulated = false;
+      const start: bigint = process.hrtime.bigint();
+      try {
+        return adaptivePredict.call(simulator, input, decision, outerContext);
+      } finally {
+        profile.totalMilliseconds += Number(process.hrtime.bigint() - start) / 1e6;
+        profile.invocations += 1;
+        if (!simulated) profile.fixedLookaheadPredictions += 1;
+        current = null;
+      }
+    };
+
+    wrap('execATN', () => {
+      simulated = true;
+    });
+    wrap('computeStartState', (_atnState: any, _context: any, fullContext: boolean) => {
+      if (current != null && !fullContext) current.dfaMisses += 1;
+    });
+    wrap('getExistingTargetState', lookedAt);
+    wrap('computeTargetState', () => {
+      if (current != null) current.dfaMisses += 1;
+    });
+    wrap('computeReachSet', lookedAt);
+    wrap('execATNWithFullContext', () => {
+      if (current != null) current.fullContextFallbacks += 1;
+    });
+    wrap('reportAmbiguity', () => {
+      if (current != null) current.ambiguities += 1;
+    });
+  }
+
+  /**
+   * The profiles of the decisions that were predicted at least once, most time first
+   */
+  report(): DecisionProfile[] {
+    return this.profiles
+      .filter((profile: DecisionProfile) => profile.invocations > 0)
+      .sort((a: DecisionProfile, b: DecisionProfile) => b.totalMilliseconds - a.totalMilliseconds);
+  }
+}
+
+/**
+ * Parses MetaEd with metaEd() in the given prediction mode, profiling every decision predicted. The parse builds
+ * no tree, and has a new parser of its own, but shares the DFAs of every other parser, so what they have already
+ * learned shows as fewer DFA misses here.
+ */
+export function profileMetaEd(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  predictionMode: 'SLL' | 'LL' = 'LL',
+): DecisionProfile[] {
+  const lexer: any = new MetaEdLexer(new antlr4.InputStream(metaEdContents));
+  const parser: any = new MetaEdParser(new CompactTokenStream(lexer));
+  lexer.removeErrorListeners();
+  lexer.addErrorListener(metaEdErrorListener);
+  parser.removeErrorListeners();
+  parser.addErrorListener(metaEdErrorListener);
+  parser._interp.predictionMode = antlr4.atn.PredictionMode[predictionMode];
+  parser.buildParseTrees = false;
+
+  const profiler = new PredictionProfiler(parser);
+  parser.metaEd();
+  return profiler.report();
+}
+
+/**
+ * Formats decision profiles as a table, one decision per line
+ */
+export function formatDecisionProfiles(profiles: DecisionProfile[]): string {
+  const header = 'decision | rule | invocations | fixed | LL fallbacks | DFA misses | max lookahead | ambiguities | ms';
+  const lines: string[] = profiles.map(
+    (profile: DecisionProfile) =>
+      `${profile.decision} | ${profile.ruleName} | ${profile.invocations} | ${profile.fixedLookaheadPredictions} | ` +
+      `${profile.fullContextFallbacks} | ${profile.dfaMisses} | ${profile.maxLookahead} | ${profile.ambiguities} | ` +
+      `${profile.totalMilliseconds.toFixed(3)}`,
+  );
+  return [header, ...lines].join('\n');
+}
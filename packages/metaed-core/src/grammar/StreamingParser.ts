@@ -0,0 +1,147 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { Transition } from '@edfi/antlr4/atn/Transition';
+import { MetaEdGrammar } from './gen/MetaEdGrammar';
+import { MetaEdErrorListener } from './MetaEdErrorListener';
+import { parserPool, PooledParser } from './ParserPool';
+import { TokenBuffer } from './TokenBuffer';
+
+/**
+ * What a grammar rule parses, as far as building a model is concerned. Rules that are none of these, such as
+ * names and property components, are 'other'.
+ */
+export type MetaEdRuleCategory =
+  | 'namespace'
+  | 'entity'
+  | 'property'
+  | 'documentation'
+  | 'mergeDirective'
+  | 'item'
+  | 'other';
+
+/**
+ * Entering or exiting a grammar rule while parsing. The context is the generated context class of the rule, with
+ * start and exception set, and on exit the stop token and the tokens matched directly by the rule as children, so
+ * accessors like ID() work. It has no child rule contexts, and it is not attached to its parent.
+ */
+export interface MetaEdParseEvent {
+  type: 'enter' | 'exit';
+  category: MetaEdRuleCategory;
+  ruleName: string;
+  context: any;
+}
+
+export type MetaEdParseEventHandler = (event: MetaEdParseEvent) => void;
+
+/**
+ * The indexes of the rules called directly by a rule, found by walking the states of the rule in the ATN
+ */
+function rulesCalledBy(atn: any, ruleIndex: number): number[] {
+  const result: Set<number> = new Set();
+  const stopState: any = atn.ruleToStopState[ruleIndex];
+  const visited: Set<any> = new Set();
+  const toVisit: any[] = [atn.ruleToStartState[ruleIndex]];
+  while (toVisit.length > 0) {
+    const state: any = toVisit.pop();
+    if (state !== stopState && !visited.has(state)) {
+      visited.add(state);
+      state.transitions.forEach((transition: any) => {
+        if (transition.serializationType === Transition.RULE) {
+          result.add(transition.ruleIndex);
+          toVisit.push(transition.followState);
+        } else {
+          toVisit.push(transition.target);
+        }
+      });
+    }
+  }
+  return [...result];
+}
+
+let categories: MetaEdRuleCategory[] | null = null;
+
+/**
+ * The category of each rule, by rule index. Entities are the rules topLevelEntity chooses between, and properties
+ * are the rules property chooses between, along with the defining domain entities of an association.
+ */
+function categoriesByRuleIndex(): MetaEdRuleCategory[] {
+  if (categories != null) return categories;
+  const { atn } = MetaEdGrammar.prototype;
+  const result: MetaEdRuleCategory[] = MetaEdGrammar.prototype.ruleNames.map((): MetaEdRuleCategory => 'other');
+  const assign = (category: MetaEdRuleCategory, ruleIndexes: number[]) =>
+    ruleIndexes.forEach((ruleIndex: number) => {
+      result[ruleIndex] = category;
+    });
+
+  assign('namespace', [MetaEdGrammar.RULE_namespace]);
+  assign('entity', rulesCalledBy(atn, MetaEdGrammar.RULE_topLevelEntity));
+  assign('property', [...rulesCalledBy(atn, MetaEdGrammar.RULE_property), MetaEdGrammar.RULE_definingDomainEntity]);
+  assign('documentation', [
+    MetaEdGrammar.RULE_documentation,
+    MetaEdGrammar.RULE_enumerationItemDocumentation,
+    MetaEdGrammar.RULE_mapTypeDocumentation,
+    MetaEdGrammar.RULE_propertyDocumentation,
+    MetaEdGrammar.RULE_footerDocumentation,
+    MetaEdGrammar.RULE_extendedDocumentation,
+    MetaEdGrammar.RULE_useCaseDocumentation,
+  ]);
+  assign('mergeDirective', [MetaEdGrammar.RULE_mergeDirective]);
+  assign('item', [
+    MetaEdGrammar.RULE_domainItem,
+    MetaEdGrammar.RULE_enumerationItem,
+    MetaEdGrammar.RULE_interchangeElement,
+    MetaEdGrammar.RULE_interchangeIdentity,
+  ]);
+  categories = result;
+  return result;
+}
+
+/**
+ * A parse listener, called by the parser itself as it enters and exits each rule, that passes each on as an event
+ */
+function eventEmittingListener(handler: MetaEdParseEventHandler): any {
+  const ruleCategories: MetaEdRuleCategory[] = categoriesByRuleIndex();
+  const { ruleNames } = MetaEdGrammar.prototype;
+  const emit = (type: 'enter' | 'exit', context: any) =>
+    handler({ type, category: ruleCategories[context.ruleIndex], ruleName: ruleNames[context.ruleIndex], context });
+
+  const listener: any = new antlr4.tree.ParseTreeListener();
+  listener.enterEveryRule = (context: any) => emit('enter', context);
+  listener.exitEveryRule = (context: any) => emit('exit', context);
+  return listener;
+}
+
+/**
+ * Parses MetaEd with metaEd() without building a parse tree, passing an event to the handler on entering and
+ * exiting each rule as parsing proceeds. Each rule context can be collected once its exit event is handled, so
+ * memory use is bounded by the nesting of the grammar rather than the size of the input, and a consumer can build
+ * its model in step with the parse instead of walking a parse tree afterwards.
+ *
+ * Events cannot be taken back once handled, so this is a single full LL parse rather than the two stage parse of
+ * buildMetaEdTwoStage(), which parses again after an SLL failure. Syntax errors are reported to the error listener
+ * as usual, and events continue through error recovery.
+ */
+export function parseMetaEdStreaming(
+  metaEdErrorListener: MetaEdErrorListener,
+  metaEdContents: string,
+  handler: MetaEdParseEventHandler,
+  tokenBuffer: TokenBuffer = new TokenBuffer(),
+): void {
+  const pooledParser: PooledParser = parserPool.acquire(
+    metaEdErrorListener,
+    new antlr4.InputStream(metaEdContents),
+    tokenBuffer,
+  );
+  const parser: any = pooledParser.parser;
+  try {
+    parser.buildParseTrees = false;
+    parser.addParseListener(eventEmittingListener(handler));
+    parser.metaEd();
+  } finally {
+    parserPool.release(pooledParser);
+  }
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/**
+ * SymbolTable interns identifier names. Each distinct name gets a stable int symbol id, numbered from zero in the order
+ * first seen, and one canonical string. Each parse, or each run of the pipeline, has its own table, which MetaEdLexer
+ * gives to every ID token it creates. A token interns its name on first use of its text or symbol id, so equal names
+ * from anywhere in a model share one string, and can be compared by symbol id. Entity slices parsed on worker threads
+ * have no table, as their parse trees are decoded into tokens of the run's table on the calling thread.
+ */
+export class SymbolTable {
+  symbolIds: Map<string, number> = new Map();
+
+  names: string[] = [];
+
+  get size(): number {
+    return this.names.length;
+  }
+
+  /**
+   * Returns the symbol id for a name, adding the name if it is new
+   */
+  intern(name: string): number {
+    const existingId: number | undefined = this.symbolIds.get(name);
+    if (existingId != null) return existingId;
+    const symbolId: number = this.names.length;
+    this.names.push(name);
+    this.symbolIds.set(name, symbolId);
+    return symbolId;
+  }
+
+  /**
+   * Returns the symbol id for a name, or -1 if the name has not been interned
+   */
+  symbolIdFor(name: string): number {
+    const symbolId: number | undefined = this.symbolIds.get(name);
+    return symbolId == null ? -1 : symbolId;
+  }
+
+  /**
+   * Returns the canonical string for a symbol id
+   */
+  nameOf(symbolId: number): string {
+    return this.names[symbolId];
+  }
+}
+
+/**
+ * Returns the symbol id of the name in a MetaEdGrammar *NameContext, or -1 if there is none, as with a syntax error.
+ * The name is the last ID token of the context, so for a name that may be namespace qualified it is the local name.
+ */
+export function symbolIdOf(nameContext: any): number {
+  const token: any = nameContext == null ? null : nameContext.stop;
+  return token != null && token.symbolId != null ? token.symbolId : -1;
+}
+
+/**
+ * Returns the symbol table that the name in a MetaEdGrammar *NameContext was interned in, or null if there is none.
+ * That is the table of its last ID token, which stays with the token when a pooled parser goes on to another parse.
+ */
+export function symbolTableOf(nameContext: any): SymbolTable | null {
+  const token: any = nameContext == null ? null : nameContext.stop;
+  return token != null && token.symbolTable != null ? token.symbolTable : null;
+}
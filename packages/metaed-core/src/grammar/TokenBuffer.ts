@@ -0,0 +1,104 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+const DEFAULT_INITIAL_CAPACITY = 1024;
+
+function grown(array: Int32Array, capacity: number): Int32Array {
+  const result = new Int32Array(capacity);
+  result.set(array);
+  return result;
+}
+
+/**
+ * The arrays of a TokenBuffer without its methods, as when posted between worker threads
+ */
+export type TokenBufferArrays = Pick<TokenBuffer, 'types' | 'starts' | 'stops' | 'lines' | 'columns' | 'size'>;
+
+/**
+ * TokenBuffer stores lexed tokens as parallel primitive arrays rather than as token objects.
+ * Entry i is the token with token index i: its type, start and stop indexes into the char stream,
+ * line and char position in line.
+ */
+export class TokenBuffer {
+  types: Int32Array;
+
+  starts: Int32Array;
+
+  stops: Int32Array;
+
+  lines: Int32Array;
+
+  columns: Int32Array;
+
+  size: number;
+
+  constructor(initialCapacity: number = DEFAULT_INITIAL_CAPACITY) {
+    const capacity: number = Math.max(initialCapacity, 1);
+    this.types = new Int32Array(capacity);
+    this.starts = new Int32Array(capacity);
+    this.stops = new Int32Array(capacity);
+    this.lines = new Int32Array(capacity);
+    this.columns = new Int32Array(capacity);
+    this.size = 0;
+  }
+
+  /**
+   * Appends a token to the buffer, returning its token index
+   */
+  add(type: number, start: number, stop: number, line: number, column: number): number {
+    if (this.size === this.types.length) this.grow();
+    const index: number = this.size;
+    this.types[index] = type;
+    this.starts[index] = start;
+    this.stops[index] = stop;
+    this.lines[index] = line;
+    this.columns[index] = column;
+    this.size += 1;
+    return index;
+  }
+
+  /**
+   * Appends the type, indexes and position of a token object from a lexer
+   */
+  addToken(token: any): number {
+    return this.add(token.type, token.start, token.stop, token.line, token.column);
+  }
+
+  /**
+   * Appends the first count tokens of another buffer
+   */
+  appendFrom(other: TokenBufferArrays, count: number = other.size) {
+    while (this.size + count > this.types.length) this.grow();
+    this.types.set(other.types.subarray(0, count), this.size);
+    this.starts.set(other.starts.subarray(0, count), this.size);
+    this.stops.set(other.stops.subarray(0, count), this.size);
+    this.lines.set(other.lines.subarray(0, count), this.size);
+    this.columns.set(other.columns.subarray(0, count), this.size);
+    this.size += count;
+  }
+
+  /**
+   * The arrays cut down to size, as copies that can be transferred to another thread
+   */
+  trimmed(): TokenBufferArrays {
+    return {
+      types: this.types.slice(0, this.size),
+      starts: this.starts.slice(0, this.size),
+      stops: this.stops.slice(0, this.size),
+      lines: this.lines.slice(0, this.size),
+      columns: this.columns.slice(0, this.size),
+      size: this.size,
+    };
+  }
+
+  grow() {
+    const capacity: number = this.types.length * 2;
+    this.types = grown(this.types, capacity);
+    this.starts = grown(this.starts, capacity);
+    this.stops = grown(this.stops, capacity);
+    this.lines = grown(this.lines, capacity);
+    this.columns = grown(this.columns, capacity);
+  }
+}
@@ -0,0 +1,161 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle, no-bitwise */
+import fs from 'node:fs';
+import antlr4 from '@edfi/antlr4/index';
+
+const REPLACEMENT_CHARACTER = 0xfffd;
+
+const isContinuationByte = (b: number): boolean => (b & 0xc0) === 0x80;
+
+/**
+ * Utf8BufferStream is an ANTLR4 CharStream over UTF-8 bytes in a Buffer, for lexing .metaed files without first
+ * decoding them to a string and copying that into a code point array.
+ *
+ * Stream indexes are byte offsets, so token start and stop indexes are byte offsets as well. Code points are decoded
+ * on demand as the lexer looks ahead, and token text is only decoded from the buffer when a token's text is read.
+ * Buffer contents live outside the JavaScript heap, so lexing a large model adds little heap beyond the tokens.
+ * Only buildMetaEdFromFile() uses it, as file loading in the pipeline keeps file contents as strings.
+ */
+export class Utf8BufferStream {
+  buffer: Buffer;
+
+  name: string;
+
+  _index: number;
+
+  _size: number;
+
+  constructor(buffer: Buffer, name: string = '<unknown>') {
+    this.buffer = buffer;
+    this.name = name;
+    this._index = 0;
+    this._size = buffer.length;
+  }
+
+  get index(): number {
+    return this._index;
+  }
+
+  get size(): number {
+    return this._size;
+  }
+
+  get sourceName(): string {
+    return this.name;
+  }
+
+  reset() {
+    this._index = 0;
+  }
+
+  consume() {
+    if (this._index >= this._size) {
+      throw new Error('cannot consume EOF');
+    }
+    this._index = this.nextIndex(this._index);
+  }
+
+  LA(offset: number): number {
+    if (offset === 0) return 0; // undefined
+    let position: number = this._index;
+    if (offset > 0) {
+      for (let i = 1; i < offset; i += 1) {
+        if (position >= this._size) return antlr4.Token.EOF;
+        position = this.nextIndex(position);
+      }
+    } else {
+      for (let i = 0; i > offset; i -= 1) {
+        if (position <= 0) return antlr4.Token.EOF;
+        position = this.previousIndex(position);
+      }
+    }
+    if (position >= this._size) return antlr4.Token.EOF;
+    return this.codePointAt(position);
+  }
+
+  LT(offset: number): number {
+    return this.LA(offset);
+  }
+
+  // mark/release do nothing; we have the entire buffer
+  // eslint-disable-next-line class-methods-use-this
+  mark(): number {
+    return -1;
+  }
+
+  // eslint-disable-next-line class-methods-use-this
+  release(_marker: number) {}
+
+  // index must be on a code point boundary, which every token start and stop + 1 is
+  seek(index: number) {
+    if (index <= this._index) {
+      this._index = index;
+      return;
+    }
+    this._index = Math.min(index, this._size);
+  }
+
+  getText(start: number, stop: number): string {
+    const end: number = Math.min(stop, this._size - 1);
+    if (start >= this._size) return '';
+    return this.buffer.toString('utf8', start, end + 1);
+  }
+
+  toString(): string {
+    return this.buffer.toString('utf8');
+  }
+
+  nextIndex(position: number): number {
+    const b: number = this.buffer[position];
+    if (b < 0x80) return position + 1;
+    if ((b & 0xe0) === 0xc0) return Math.min(position + 2, this._size);
+    if ((b & 0xf0) === 0xe0) return Math.min(position + 3, this._size);
+    if ((b & 0xf8) === 0xf0) return Math.min(position + 4, this._size);
+    return position + 1;
+  }
+
+  previousIndex(position: number): number {
+    let result: number = position - 1;
+    while (result > 0 && position - result < 4 && isContinuationByte(this.buffer[result])) result -= 1;
+    return result;
+  }
+
+  codePointAt(position: number): number {
+    const b0: number = this.buffer[position];
+    if (b0 < 0x80) return b0;
+
+    let length: number;
+    let codePoint: number;
+    if ((b0 & 0xe0) === 0xc0) {
+      length = 2;
+      codePoint = b0 & 0x1f;
+    } else if ((b0 & 0xf0) === 0xe0) {
+      length = 3;
+      codePoint = b0 & 0x0f;
+    } else if ((b0 & 0xf8) === 0xf0) {
+      length = 4;
+      codePoint = b0 & 0x07;
+    } else {
+      return REPLACEMENT_CHARACTER;
+    }
+
+    if (position + length > this._size) return REPLACEMENT_CHARACTER;
+    for (let i = 1; i < length; i += 1) {
+      const b: number = this.buffer[position + i];
+      if (!isContinuationByte(b)) return REPLACEMENT_CHARACTER;
+      codePoint = (codePoint << 6) | (b & 0x3f);
+    }
+    return codePoint;
+  }
+}
+
+/**
+ * Reads a .metaed file as raw bytes into a Utf8BufferStream
+ */
+export function utf8BufferStreamFromFile(filePath: string): Utf8BufferStream {
+  return new Utf8BufferStream(fs.readFileSync(filePath), filePath);
+}
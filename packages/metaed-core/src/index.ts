@@ -24,7 +24,20 @@ export { newState } from './State';
 export { newPipelineOptions } from './pipeline/PipelineOptions';
 export { loadFileIndex } from './file/LoadFileIndex';
 export { buildParseTree } from './grammar/BuildParseTree';
-export { buildMetaEd } from './grammar/ParseTreeBuilder';
+export { buildParseTreeByFile } from './grammar/BuildParseTreeByFile';
+export { buildMetaEd, buildMetaEdTwoStage } from './grammar/ParseTreeBuilder';
+export { buildMetaEdByEntity } from './grammar/EntitySlicedParser';
+export { buildCompactMetaEd, CompactParseTree, CompactParseTreeNode } from './grammar/CompactParseTree';
+export { parseIncrementally, reparse, IncrementalParse, ReparseResult } from './grammar/IncrementalParser';
+export { TextEdit } from './grammar/IncrementalLexer';
+export { MetaEdErrorStrategy } from './grammar/MetaEdErrorStrategy';
+export { DecisionProfile, formatDecisionProfiles, PredictionProfiler, profileMetaEd } from './grammar/PredictionProfiler';
+export {
+  parseMetaEdStreaming,
+  MetaEdParseEvent,
+  MetaEdParseEventHandler,
+  MetaEdRuleCategory,
+} from './grammar/StreamingParser';
 export { execute as walkBuilders } from './builder/WalkBuilders';
 export { execute as runValidators } from './validator/RunValidators';
 export { execute as runEnhancers } from './enhancer/RunEnhancers';
@@ -5,10 +5,9 @@
 
 import { loadFiles } from '../file/FileSystemFilenameLoader';
 import { initializeMetaEdEnvironment } from './InitializeMetaEdEnvironment';
-import { validateSyntax } from '../grammar/ValidateSyntax';
-import { buildTopLevelEntity, buildMetaEd } from '../grammar/ParseTreeBuilder';
 import { loadFileIndex } from '../file/LoadFileIndex';
-import { buildParseTree } from '../grammar/BuildParseTree';
+import { buildParseTreeByFile } from '../grammar/BuildParseTreeByFile';
+import { loadDfaCache, saveDfaCache } from '../grammar/DfaCache';
 import { execute as walkBuilders } from '../builder/WalkBuilders';
 import { fileMapForValidationFailure } from './FileMapForValidationFailure';
 import { nextMacroTask } from '../Utility';
@@ -37,18 +36,25 @@ export async function executePipeline(state: State): Promise<{ state: State; fai
   if (!loadFiles(state)) return { state, failure: true };
   await nextMacroTask();
 
-  Logger.debug('Validating syntax');
-  validateSyntax(buildTopLevelEntity, state);
-  await nextMacroTask();
+  const { dfaCacheFilePath } = state.pipelineOptions;
+  if (dfaCacheFilePath != null) {
+    Logger.debug('Loading DFA cache');
+    loadDfaCache(dfaCacheFilePath);
+  }
 
   Logger.debug('Loading file indexes');
   loadFileIndex(state);
   await nextMacroTask();
 
-  Logger.debug('Building parse tree');
-  buildParseTree(buildMetaEd, state);
+  Logger.debug('Building parse tree and validating syntax');
+  await buildParseTreeByFile(state);
   await nextMacroTask();
 
+  if (dfaCacheFilePath != null) {
+    Logger.debug('Saving DFA cache');
+    saveDfaCache(dfaCacheFilePath);
+  }
+
   Logger.debug('Walking builders');
   await walkBuilders(state);
 
@@ -8,6 +8,10 @@ export interface PipelineOptions {
   runEnhancers: boolean;
   runGenerators: boolean;
   stopOnValidationFailure: boolean;
+  // If set, learned lexer and parser DFA states are loaded from and saved to this file across runs
+  dfaCacheFilePath: string | null;
+  // If set, a syntax error in a top level entity is reported once and parsing resumes at the next top level entity
+  resyncOnEntityError: boolean;
 }
 
 export const newPipelineOptions: () => PipelineOptions = () => ({
@@ -15,4 +19,6 @@ export const newPipelineOptions: () => PipelineOptions = () => ({
   runEnhancers: false,
   runGenerators: false,
   stopOnValidationFailure: false,
+  dfaCacheFilePath: null,
+  resyncOnEntityError: false,
 });
@@ -0,0 +1,91 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4';
+import { CommonBuilder } from '../../src/builder/CommonBuilder';
+import { DomainEntityBuilder } from '../../src/builder/DomainEntityBuilder';
+import { NamespaceBuilder } from '../../src/builder/NamespaceBuilder';
+import { SyntaxValidatingBuilder } from '../../src/builder/SyntaxValidatingBuilder';
+import { execute as walkBuilders } from '../../src/builder/WalkBuilders';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { MetaEdTextBuilder } from '../../src/grammar/MetaEdTextBuilder';
+import { buildMetaEd } from '../../src/grammar/ParseTreeBuilder';
+import { EntityProperty } from '../../src/model/property/EntityProperty';
+import { newState, State } from '../../src/State';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+// Duplicate domain entities come before duplicate commons in the source, but DomainEntityBuilder walked after
+// CommonBuilder when each builder had its own walk
+const metaEdText: string = MetaEdTextBuilder.build()
+  .withBeginNamespace('EdFi')
+  .withStartDomainEntity('Student')
+  .withDocumentation('doc')
+  .withIntegerProperty('Age', 'doc', true, false)
+  .withEndDomainEntity()
+  .withStartDomainEntity('Student')
+  .withDocumentation('doc')
+  .withIntegerProperty('Height', 'doc', true, false)
+  .withEndDomainEntity()
+  .withStartCommon('Address')
+  .withDocumentation('doc')
+  .withIntegerProperty('Number', 'doc', true, false)
+  .withEndCommon()
+  .withStartCommon('Address')
+  .withDocumentation('doc')
+  .withIntegerProperty('Unit', 'doc', true, false)
+  .withEndCommon()
+  .withEndNamespace()
+  .toString();
+
+function stateWithParseTree(): State {
+  const state: State = newState();
+  state.parseTree = buildMetaEd(new MetaEdErrorListener([]), metaEdText);
+  return state;
+}
+
+function failureMessages(state: State): string[] {
+  return state.validationFailure.map((failure: ValidationFailure) => `${failure.validatorName}: ${failure.message}`);
+}
+
+function integerProperties(state: State): string[] {
+  return state.metaEd.propertyIndex.integer.map(
+    (property: EntityProperty) => `${property.parentEntityName}.${property.metaEdName}`,
+  );
+}
+
+describe('when walking builders in a single fused walk', (): void => {
+  const fused: State = stateWithParseTree();
+  const separate: State = stateWithParseTree();
+
+  beforeAll(async () => {
+    await walkBuilders(fused);
+
+    // the builders that see this model, each walked on its own in the order walkBuilders lists them
+    const parseTreeWalker = new antlr4.tree.ParseTreeWalker();
+    [
+      new NamespaceBuilder(separate.metaEd, separate.validationFailure),
+      new CommonBuilder(separate.metaEd, separate.validationFailure),
+      new DomainEntityBuilder(separate.metaEd, separate.validationFailure),
+      new SyntaxValidatingBuilder(separate.metaEd, separate.validationFailure),
+    ].forEach((builder) => parseTreeWalker.walk(builder, separate.parseTree));
+  });
+
+  it('should build the namespace before the entities in it', (): void => {
+    const namespace: any = fused.metaEd.namespace.get('EdFi');
+    expect(namespace).toBeDefined();
+    expect(namespace.entity.domainEntity.get('Student').namespace).toBe(namespace);
+    expect(namespace.entity.common.get('Address').namespace).toBe(namespace);
+  });
+
+  it('should have validation failures in the order of walking each builder on its own', (): void => {
+    expect(failureMessages(fused)).toHaveLength(4);
+    expect(failureMessages(fused)).toEqual(failureMessages(separate));
+  });
+
+  it('should have properties in the order of walking each builder on its own', (): void => {
+    expect(integerProperties(fused)).toEqual(integerProperties(separate));
+    expect(integerProperties(fused)[0]).toBe('Address.Number');
+  });
+});
@@ -0,0 +1,108 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { newState, State } from '../../src/State';
+import { createMetaEdFile, FileSet } from '../../src/file/MetaEdFile';
+import { getAllContents } from '../../src/file/FileIndex';
+import { loadFileIndex } from '../../src/file/LoadFileIndex';
+import { buildParseTreeByFile } from '../../src/grammar/BuildParseTreeByFile';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { DEFAULT_ERROR_TOKEN_BUDGET } from '../../src/grammar/MetaEdLexer';
+import { buildMetaEdTwoStage } from '../../src/grammar/ParseTreeBuilder';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+function fileSet(namespaceName: string, isExtension: boolean, fileContents: string[]): FileSet {
+  return {
+    namespaceName,
+    projectExtension: isExtension ? 'Sample' : '',
+    projectName: namespaceName,
+    isExtension,
+    files: fileContents.map((contents: string, index: number) =>
+      createMetaEdFile(namespaceName, `File${index}.metaed`, contents),
+    ),
+  };
+}
+
+/**
+ * Each rule context's rule name and start line, depth first
+ */
+function ruleLines(tree: any): string[] {
+  const result: string[] = [];
+  const visit = (context: any) => {
+    if (context.children == null) return;
+    result.push(`${tree.parser.ruleNames[context.ruleIndex]} ${context.start.line}:${context.start.column}`);
+    context.children.forEach(visit);
+  };
+  visit(tree);
+  return result;
+}
+
+describe('when building the parse tree file by file', (): void => {
+  const state: State = newState();
+  state.loadedFileSet = [
+    fileSet('EdFi', false, [
+      'Domain Entity Student\n    documentation "doc"\n    integer Age\n        documentation "doc"\n        is part of identity\n',
+      '// only a comment\n',
+      'Descriptor Sex\n    documentation "doc"\n\nCommon Address\n    documentation "doc"\n    integer Number\n        documentation "doc"\n        is optional\n',
+    ]),
+    fileSet('Extension', true, [
+      'Domain Entity EdFi.Student additions\n    integer Height\n        documentation "doc"\n        is optional\n',
+    ]),
+  ];
+  loadFileIndex(state);
+
+  const concatenatedTree: any = buildMetaEdTwoStage(new MetaEdErrorListener([]), getAllContents(state.fileIndex));
+
+  it('should have the same parse tree as parsing the files concatenated', async (): Promise<void> => {
+    await buildParseTreeByFile(state, 1);
+    const tree: any = state.parseTree;
+    expect(tree.toStringTree(tree.parser.ruleNames)).toBe(concatenatedTree.toStringTree(concatenatedTree.parser.ruleNames));
+  });
+
+  it('should have the same line numbers as parsing the files concatenated', async (): Promise<void> => {
+    await buildParseTreeByFile(state, 1);
+    expect(ruleLines(state.parseTree)).toEqual(ruleLines(concatenatedTree));
+  });
+});
+
+describe('when building the parse tree file by file with syntax errors', (): void => {
+  const state: State = newState();
+  state.loadedFileSet = [
+    fileSet('EdFi', false, [
+      'Domain Entity Student\n    documentation "doc"\n    integer Age xyz\n        documentation "doc"\n        is part of identity\n',
+      'Descriptor Sex\n    documentation "doc"\n\nCommon Address\n    documentation "doc"\n',
+      'Descriptor Grade\n    documentation "doc"\n',
+    ]),
+  ];
+  loadFileIndex(state);
+
+  it('should add each syntax error to the state with the file and line it is in', async (): Promise<void> => {
+    await buildParseTreeByFile(state, 1);
+    expect(state.parseTree).not.toBeNull();
+    expect(state.validationFailure).toHaveLength(2);
+    expect(state.validationFailure[0].fileMap).toEqual({ fullPath: 'EdFi/File0.metaed', lineNumber: 3 });
+    // the Common without properties is only found to be cut short at the End Namespace after the file
+    expect(state.validationFailure[1].fileMap).toEqual({ fullPath: 'EdFi/File1.metaed', lineNumber: 5 });
+  });
+});
+
+describe('when building the parse tree file by file with a file that is not MetaEd', (): void => {
+  const state: State = newState();
+  state.loadedFileSet = [
+    fileSet('EdFi', false, ['Descriptor Sex\n    documentation "doc"\n', '~ Abc\n'.repeat(DEFAULT_ERROR_TOKEN_BUDGET + 1)]),
+  ];
+  loadFileIndex(state);
+
+  it('should report running out of error budget on the file', async (): Promise<void> => {
+    await buildParseTreeByFile(state, 1);
+    const budgetFailures: ValidationFailure[] = state.validationFailure.filter((failure: ValidationFailure) =>
+      failure.message.startsWith('too many unrecognized characters'),
+    );
+    expect(budgetFailures).toHaveLength(1);
+    expect(budgetFailures[0].fileMap).toEqual({ fullPath: 'EdFi/File1.metaed', lineNumber: DEFAULT_ERROR_TOKEN_BUDGET + 1 });
+    // lexer errors come before the parser errors of the same file
+    expect(state.validationFailure[0]).toBe(budgetFailures[0]);
+  });
+});
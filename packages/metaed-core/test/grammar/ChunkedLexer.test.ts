@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { Chunk, lexChunk, lexInParallel, mergeChunkTokens, splitIntoChunks } from '../../src/grammar/ChunkedLexer';
+import { TokenBuffer } from '../../src/grammar/TokenBuffer';
+
+function tokenStrings(tokenBuffer: TokenBuffer): string[] {
+  const result: string[] = [];
+  for (let i = 0; i < tokenBuffer.size; i += 1) {
+    result.push(
+      `${tokenBuffer.types[i]} ${tokenBuffer.starts[i]}-${tokenBuffer.stops[i]} ${tokenBuffer.lines[i]}:${tokenBuffer.columns[i]}`,
+    );
+  }
+  return result;
+}
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "A student',
+  'Domain Entity NotAChunkBoundary',
+  '    inside ""quoted"" text"',
+  '    integer Age',
+  '        documentation "Age"',
+  '        is part of identity',
+  '// a comment with a "quote',
+  'Association StudentSchool',
+  '    documentation "doc"',
+  '    domain entity Student',
+  '        documentation "doc"',
+  'Descriptor Sex',
+  '    documentation "doc"',
+  'End Namespace',
+  '',
+].join('\n');
+
+describe('when splitting MetaEd into chunks', (): void => {
+  const chunks: Chunk[] = splitIntoChunks(metaEdText, 100);
+
+  it('should split only at top level keywords outside text and comments', (): void => {
+    expect(chunks.map((chunk) => chunk.text.split('\n')[0])).toEqual([
+      'Begin Namespace EdFi core',
+      'Domain Entity Student',
+      'Association StudentSchool',
+      'Descriptor Sex',
+      'End Namespace',
+    ]);
+  });
+
+  it('should have offsets and lines of the chunk starts', (): void => {
+    chunks.forEach((chunk: Chunk) => {
+      expect(metaEdText.substr(chunk.offset, chunk.text.length)).toBe(chunk.text);
+      expect(metaEdText.substring(0, chunk.offset).split('\n').length).toBe(chunk.line);
+    });
+  });
+
+  it('should not split more than asked', (): void => {
+    expect(splitIntoChunks(metaEdText, 2)).toHaveLength(2);
+    expect(splitIntoChunks(metaEdText, 1)).toHaveLength(1);
+  });
+});
+
+describe('when lexing MetaEd in chunks', (): void => {
+  it('should have the same tokens as lexing it whole', (): void => {
+    const expected: TokenBuffer = lexChunk({ text: metaEdText, offset: 0, line: 1 });
+    const chunks: Chunk[] = splitIntoChunks(metaEdText, 100);
+    const actual: TokenBuffer = mergeChunkTokens(chunks, chunks.map((chunk: Chunk) => lexChunk(chunk)));
+    expect(tokenStrings(actual)).toEqual(tokenStrings(expected));
+  });
+
+  it('should have the same tokens when lexed in parallel', async (): Promise<void> => {
+    const expected: TokenBuffer = lexChunk({ text: metaEdText, offset: 0, line: 1 });
+    const actual: TokenBuffer = await lexInParallel(metaEdText, 4);
+    expect(tokenStrings(actual)).toEqual(tokenStrings(expected));
+  });
+});
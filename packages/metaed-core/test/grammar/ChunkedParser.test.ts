@@ -0,0 +1,49 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { Chunk } from '../../src/grammar/ChunkedLexer';
+import { decodeParsedChunk, encodeParsedChunk, parseChunk, ParsedChunk } from '../../src/grammar/ChunkedParser';
+import { SymbolTable } from '../../src/grammar/SymbolTable';
+import { nodePositions } from './ParseTreeTestHelper';
+
+const chunk: Chunk = {
+  text: [
+    'Begin Namespace EdFi core',
+    'Domain Entity Student',
+    '    documentation "A student"',
+    '    integer Age',
+    '        documentation "Age"',
+    '        is part of identity',
+    'Domain Entity',
+    '    documentation "doc"',
+    'Descriptor Sex',
+    '    documentation "doc"',
+    'End Namespace',
+    '',
+  ].join('\n'),
+  offset: 0,
+  line: 1,
+};
+
+describe('when decoding a chunk parsed on another thread', (): void => {
+  it('should have the same parse tree and syntax errors as parsing it here', (): void => {
+    const expected: ParsedChunk = parseChunk(chunk, false, new SymbolTable());
+    const actual: ParsedChunk = decodeParsedChunk(
+      chunk,
+      encodeParsedChunk(parseChunk(chunk, false, null)),
+      new SymbolTable(),
+    );
+    expect(nodePositions(actual.tree, true)).toEqual(nodePositions(expected.tree, true));
+    expect(actual.failures).toEqual(expected.failures);
+    expect(actual.failures).not.toHaveLength(0);
+  });
+
+  it('should intern names in the given symbol table', (): void => {
+    const symbolTable = new SymbolTable();
+    const actual: ParsedChunk = decodeParsedChunk(chunk, encodeParsedChunk(parseChunk(chunk, false, null)), symbolTable);
+    expect(nodePositions(actual.tree).some((position: string) => position.endsWith(' 2:14 Student'))).toBe(true);
+    expect(symbolTable.size).toBeGreaterThan(0);
+  });
+});
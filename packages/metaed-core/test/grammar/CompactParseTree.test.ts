@@ -0,0 +1,79 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { buildCompactMetaEd, CompactParseTree } from '../../src/grammar/CompactParseTree';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { buildMetaEdTwoStage } from '../../src/grammar/ParseTreeBuilder';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+import { nodePositions } from './ParseTreeTestHelper';
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '    string Name',
+  '        documentation "doc"',
+  '        is optional',
+  '        max length 30',
+  '',
+  'Enumeration Sex',
+  '    documentation "doc"',
+  '    item "Male"',
+  '    item "Female"',
+  'End Namespace',
+].join('\n');
+
+describe('when building a compact parse tree', (): void => {
+  const failures: ValidationFailure[] = [];
+  const tree: CompactParseTree = buildCompactMetaEd(new MetaEdErrorListener(failures), metaEdText);
+  const contextTree: any = buildMetaEdTwoStage(new MetaEdErrorListener([]), metaEdText);
+
+  it('should be the same tree as the generated context tree', (): void => {
+    expect(tree.toStringTree()).toBe(contextTree.toStringTree(contextTree.parser.ruleNames));
+    expect(nodePositions(tree.root())).toEqual(nodePositions(contextTree));
+    expect(failures).toHaveLength(0);
+  });
+
+  it('should navigate with the generated accessors', (): void => {
+    const entity: any = (tree.root() as any).namespace(0).topLevelEntity(0).domainEntity();
+    expect(entity.entityName().ID().getText()).toBe('Student');
+    expect(entity.property()).toHaveLength(2);
+    expect(entity.property(1).stringProperty().simplePropertyName().getText()).toBe('Name');
+    expect(entity.property(1).stringProperty().maxLength().UNSIGNED_INT().getText()).toBe('30');
+    expect(entity.property(2)).toBeNull();
+    expect(entity.parentCtx.parentCtx.namespaceName().getText()).toBe('EdFi');
+
+    const enumeration: any = (tree.root() as any).namespace(0).topLevelEntity(1).enumeration();
+    expect(enumeration.domainEntity).toBeDefined();
+    expect(() => enumeration.domainEntity()).toThrow(TypeError);
+    expect(enumeration.enumerationItem().map((item: any) => item.shortDescription().TEXT().getText())).toEqual([
+      '"Male"',
+      '"Female"',
+    ]);
+  });
+
+  it('should have a node for every context and terminal of the generated context tree', (): void => {
+    expect(tree.size).toBe(nodePositions(contextTree).length);
+    expect(tree.ruleIndexes).toBeInstanceOf(Int32Array);
+  });
+});
+
+describe('when building a compact parse tree with syntax errors', (): void => {
+  const invalidText: string = metaEdText.replace('    integer Age', '    integer Age xyz').replace('item "Female"', 'item');
+
+  it('should be the same tree with the same errors as the generated context tree', (): void => {
+    const failures: ValidationFailure[] = [];
+    const tree: CompactParseTree = buildCompactMetaEd(new MetaEdErrorListener(failures), invalidText);
+    const contextFailures: ValidationFailure[] = [];
+    const contextTree: any = buildMetaEdTwoStage(new MetaEdErrorListener(contextFailures), invalidText);
+
+    expect(tree.toStringTree()).toBe(contextTree.toStringTree(contextTree.parser.ruleNames));
+    expect(failures).toEqual(contextFailures);
+    expect(failures.length).toBeGreaterThan(0);
+  });
+});
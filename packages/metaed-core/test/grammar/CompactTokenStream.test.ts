@@ -0,0 +1,99 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { CompactTokenStream } from '../../src/grammar/CompactTokenStream';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+function parse(inputText: string, createTokenStream: (lexer: any) => any): { tree: string; failures: ValidationFailure[] } {
+  const failures: ValidationFailure[] = [];
+  const errorListener = new MetaEdErrorListener(failures);
+  const lexer = new MetaEdLexer(new antlr4.InputStream(inputText));
+  const parser = new MetaEdGrammar(createTokenStream(lexer));
+  lexer.removeErrorListeners();
+  lexer.addErrorListener(errorListener);
+  parser.removeErrorListeners();
+  parser.addErrorListener(errorListener);
+  const tree: string = parser.metaEd().toStringTree(parser.ruleNames);
+  return { tree, failures };
+}
+
+function expectSameParseAsCommonTokenStream(inputText: string): void {
+  const expected = parse(inputText, (lexer) => new antlr4.CommonTokenStream(lexer));
+  const actual = parse(inputText, (lexer) => new CompactTokenStream(lexer));
+  expect(actual.tree).toBe(expected.tree);
+  expect(actual.failures).toEqual(expected.failures);
+}
+
+describe('when parsing valid MetaEd with a compact token stream', (): void => {
+  it('should have the same parse tree as a CommonTokenStream', (): void => {
+    expectSameParseAsCommonTokenStream(
+      [
+        'Begin Namespace EdFi core',
+        'Domain Entity Student',
+        '    documentation "A student"',
+        '    integer Age',
+        '        documentation "Age"',
+        '        is part of identity',
+        '    domain entity EdFi.School',
+        '        documentation "School"',
+        '        is optional',
+        'Association StudentSchool based on EdFi.Base',
+        '    documentation "doc"',
+        '    string Name',
+        '        documentation "doc"',
+        '        is required',
+        '        max length 10',
+        'End Namespace',
+      ].join('\n'),
+    );
+  });
+});
+
+describe('when parsing MetaEd with syntax errors with a compact token stream', (): void => {
+  it('should have the same parse tree and errors as a CommonTokenStream', (): void => {
+    expectSameParseAsCommonTokenStream(
+      [
+        'Begin Namespace EdFi core',
+        'Domain Entity Staff additions',
+        '    descriptor EducatorEffectiveness',
+        '        documentation "doc"',
+        '        is optional',
+        '    comvmon Recognition',
+        '        documentation "doc"',
+        '        is optional collection',
+        '    integer MyProperty xyz',
+        'End Namespace',
+      ].join('\n'),
+    );
+  });
+});
+
+describe('when looking ahead and behind in a compact token stream', (): void => {
+  const tokenStream = new CompactTokenStream(new MetaEdLexer(new antlr4.InputStream('Domain Entity Student')));
+
+  it('should have tokens with indexes, types and positions', (): void => {
+    expect(tokenStream.LA(1)).toBe(MetaEdGrammar.DOMAIN_ENTITY);
+    expect(tokenStream.LA(2)).toBe(MetaEdGrammar.ID);
+    expect(tokenStream.LA(3)).toBe(antlr4.Token.EOF);
+    expect(tokenStream.LA(4)).toBe(antlr4.Token.EOF);
+
+    const student: any = tokenStream.LT(2);
+    expect(student.tokenIndex).toBe(1);
+    expect(student.text).toBe('Student');
+    expect(student.line).toBe(1);
+    expect(student.column).toBe(14);
+  });
+
+  it('should consume and look behind', (): void => {
+    tokenStream.consume();
+    expect(tokenStream.index).toBe(1);
+    expect(tokenStream.LT(-1).text).toBe('Domain Entity');
+    expect(tokenStream.LT(1)).toBe(tokenStream.get(1));
+  });
+});
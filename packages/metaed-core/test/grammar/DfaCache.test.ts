@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/* eslint-disable no-underscore-dangle */
+import antlr4 from '@edfi/antlr4/index';
+import fs from 'fs-extra';
+import os from 'os';
+import path from 'path';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { buildMetaEd } from '../../src/grammar/ParseTreeBuilder';
+import { clearDfas, loadDfaCache, saveDfaCache } from '../../src/grammar/DfaCache';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+
+describe('when saving and loading a DFA cache', (): void => {
+  const cacheDirectory: string = fs.mkdtempSync(path.join(os.tmpdir(), 'dfa-cache-'));
+  const firstCacheFilePath: string = path.join(cacheDirectory, 'first.json');
+  const secondCacheFilePath: string = path.join(cacheDirectory, 'second.json');
+  let loaded = false;
+  let expectedParseTree = '';
+  let parseTree = '';
+
+  beforeAll(() => {
+    const metaEdText: string = [
+      'Begin Namespace EdFi core',
+      'Domain Entity Student',
+      '    documentation "A student"',
+      '    integer Age',
+      '        documentation "Age"',
+      '        is part of identity',
+      '    domain entity EdFi.School',
+      '        documentation "School"',
+      '        is optional collection',
+      'End Namespace',
+    ].join('\n');
+    const listener = new MetaEdErrorListener([]);
+    const coldTree: any = buildMetaEd(listener, metaEdText);
+    expectedParseTree = coldTree.toStringTree(coldTree.parser.ruleNames);
+    saveDfaCache(firstCacheFilePath);
+
+    clearDfas();
+    const parser: any = new MetaEdGrammar(new antlr4.CommonTokenStream(new MetaEdLexer(new antlr4.InputStream(''))));
+    expect(parser._interp.decisionToDFA[0].s0).toBeNull();
+
+    loaded = loadDfaCache(firstCacheFilePath);
+    saveDfaCache(secondCacheFilePath);
+    const warmTree: any = buildMetaEd(listener, metaEdText);
+    parseTree = warmTree.toStringTree(warmTree.parser.ruleNames);
+  });
+
+  afterAll(() => {
+    fs.removeSync(cacheDirectory);
+  });
+
+  it('should load the cache', (): void => {
+    expect(loaded).toBe(true);
+  });
+
+  it('should restore the same DFA states that were saved', (): void => {
+    expect(fs.readJsonSync(secondCacheFilePath)).toEqual(fs.readJsonSync(firstCacheFilePath));
+  });
+
+  it('should parse the same with the restored DFA states', (): void => {
+    expect(parseTree).toBe(expectedParseTree);
+  });
+
+  it('should ignore a missing cache', (): void => {
+    expect(loadDfaCache(path.join(cacheDirectory, 'missing.json'))).toBe(false);
+  });
+
+  it('should ignore a stale cache', (): void => {
+    const staleCacheFilePath: string = path.join(cacheDirectory, 'stale.json');
+    fs.writeJsonSync(staleCacheFilePath, { ...fs.readJsonSync(firstCacheFilePath), key: 'stale' });
+    expect(loadDfaCache(staleCacheFilePath)).toBe(false);
+  });
+});
@@ -0,0 +1,115 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { lexChunk } from '../../src/grammar/ChunkedLexer';
+import { CompactTokenStream } from '../../src/grammar/CompactTokenStream';
+import { buildMetaEdByEntity, entitySlices, TokenSlice } from '../../src/grammar/EntitySlicedParser';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { buildMetaEdFromTokens, buildMetaEdTwoStage } from '../../src/grammar/ParseTreeBuilder';
+import { decodeParseTree, encodeParseTree } from '../../src/grammar/ParseTreeEncoding';
+import { TokenBuffer } from '../../src/grammar/TokenBuffer';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '',
+  'Descriptor Sex',
+  '    documentation "doc"',
+  '',
+  'Association StudentSchool',
+  '    documentation "doc"',
+  '    domain entity Student',
+  '        documentation "doc"',
+  '    domain entity School',
+  '        documentation "doc"',
+  '',
+  'Common EdFi.Address additions',
+  '    integer Number',
+  '        documentation "doc"',
+  '        is optional',
+  'End Namespace',
+].join('\n');
+
+function tokensOf(text: string): TokenBuffer {
+  return lexChunk({ text, offset: 0, line: 1 });
+}
+
+function treeString(tree: any): string {
+  return tree.toStringTree(tree.parser.ruleNames);
+}
+
+describe('when slicing tokens by top level entity', (): void => {
+  const tokens: TokenBuffer = tokensOf(metaEdText);
+  const slices: TokenSlice[] = entitySlices(tokens);
+
+  it('should have a slice for each entity', (): void => {
+    expect(slices).toHaveLength(4);
+  });
+
+  it('should start each slice at an entity keyword and end it where the next begins', (): void => {
+    expect(slices.map((slice: TokenSlice) => tokens.lines[slice.start])).toEqual([2, 8, 11, 18]);
+    slices.slice(1).forEach((slice: TokenSlice, index: number) => expect(slice.start).toBe(slices[index].end));
+    expect(tokens.types[slices[3].end]).toBe(MetaEdGrammar.END_NAMESPACE);
+  });
+});
+
+describe('when building the parse tree by top level entity', (): void => {
+  it('should have the same parse tree as parsing the namespace whole', async (): Promise<void> => {
+    const failures: ValidationFailure[] = [];
+    const tree: any = await buildMetaEdByEntity(new MetaEdErrorListener(failures), metaEdText, tokensOf(metaEdText), 1);
+    expect(treeString(tree)).toBe(treeString(buildMetaEdTwoStage(new MetaEdErrorListener([]), metaEdText)));
+    expect(tree.namespace(0).topLevelEntity()).toHaveLength(4);
+    expect(failures).toHaveLength(0);
+  });
+
+  it('should report a syntax error in an entity after the first', async (): Promise<void> => {
+    const invalidText: string = metaEdText.replace('    integer Number', '    integer Number xyz');
+    const failures: ValidationFailure[] = [];
+    await buildMetaEdByEntity(new MetaEdErrorListener(failures), invalidText, tokensOf(invalidText), 1);
+    expect(failures).toHaveLength(1);
+    expect(failures[0].sourceMap).toMatchObject({ line: 19, column: 19 });
+  });
+
+  it('should report a token after a complete property as a whole parse does', async (): Promise<void> => {
+    const invalidText: string = metaEdText.replace('        is optional', '        is optional\n    integr Unit');
+    const failures: ValidationFailure[] = [];
+    await buildMetaEdByEntity(new MetaEdErrorListener(failures), invalidText, tokensOf(invalidText), 1);
+    const wholeFailures: ValidationFailure[] = [];
+    buildMetaEdFromTokens(new MetaEdErrorListener(wholeFailures), invalidText, tokensOf(invalidText));
+    expect(wholeFailures.length).toBeGreaterThan(0);
+    expect(failures).toEqual(wholeFailures);
+    expect(failures[0].sourceMap).toMatchObject({ line: 22, tokenText: 'integr' });
+  });
+
+  it('should report an error at the end of an entity as a whole parse does', async (): Promise<void> => {
+    const invalidText: string = metaEdText.replace('Descriptor Sex\n    documentation "doc"', 'Descriptor Sex');
+    const failures: ValidationFailure[] = [];
+    await buildMetaEdByEntity(new MetaEdErrorListener(failures), invalidText, tokensOf(invalidText), 1);
+    const wholeFailures: ValidationFailure[] = [];
+    buildMetaEdFromTokens(new MetaEdErrorListener(wholeFailures), invalidText, tokensOf(invalidText));
+    expect(wholeFailures.length).toBeGreaterThan(0);
+    expect(failures).toEqual(wholeFailures);
+    expect(failures[0].sourceMap).toMatchObject({ line: 10, tokenText: 'Association' });
+  });
+});
+
+describe('when encoding and decoding a parse tree', (): void => {
+  it('should rebuild the same parse tree', (): void => {
+    const tokens: TokenBuffer = tokensOf(metaEdText);
+    const tree: any = buildMetaEdFromTokens(new MetaEdErrorListener([]), metaEdText, tokens);
+    const tokenStream = new CompactTokenStream(new MetaEdLexer(new antlr4.InputStream(metaEdText)), tokens);
+    const decoded: any = decodeParseTree(encodeParseTree(tree, 0, tokens.size), tree.parser, tokenStream);
+    expect(treeString(decoded)).toBe(treeString(tree));
+    expect(decoded.namespace(0).topLevelEntity(1).start.line).toBe(8);
+  });
+});
@@ -0,0 +1,117 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { lexChunk } from '../../src/grammar/ChunkedLexer';
+import { applyTextEdit, relex, RelexResult, TextEdit } from '../../src/grammar/IncrementalLexer';
+import { TokenBuffer } from '../../src/grammar/TokenBuffer';
+
+function tokenStrings(tokenBuffer: TokenBuffer): string[] {
+  const result: string[] = [];
+  for (let i = 0; i < tokenBuffer.size; i += 1) {
+    result.push(
+      `${tokenBuffer.types[i]} ${tokenBuffer.starts[i]}-${tokenBuffer.stops[i]} ${tokenBuffer.lines[i]}:${tokenBuffer.columns[i]}`,
+    );
+  }
+  return result;
+}
+
+const lex = (text: string): TokenBuffer => lexChunk({ text, offset: 0, line: 1 });
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "A student',
+  '    on two lines"',
+  '    integer Age // a comment',
+  '        documentation "Age"',
+  '        is optional',
+  '    domain entity School',
+  '        documentation "doc"',
+  'End Namespace',
+].join('\n');
+
+function relexAt(search: string, deleteLength: number, insertText: string): RelexResult {
+  const start: number = metaEdText.indexOf(search);
+  const edit: TextEdit = { start, end: start + deleteLength, text: insertText };
+  const result: RelexResult = relex(metaEdText, lex(metaEdText), edit);
+  expect(result.text).toBe(applyTextEdit(metaEdText, edit));
+  expect(tokenStrings(result.tokenBuffer)).toEqual(tokenStrings(lex(result.text)));
+  return result;
+}
+
+describe('when relexing after an edit to an identifier', (): void => {
+  it('should match lexing the whole text and reuse the tokens around it', (): void => {
+    const result: RelexResult = relexAt('Age //', 3, 'Years');
+    expect(result.firstChangedToken).toBeGreaterThan(0);
+    expect(result.newResumeToken).toBeLessThan(result.tokenBuffer.size);
+  });
+});
+
+describe('when relexing after inserting a line', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('        is optional', 0, '        is part of identity\n');
+  });
+});
+
+describe('when relexing after an edit that extends a keyword', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('\n    domain entity School', 0, ' collection');
+  });
+});
+
+describe('when relexing after an edit inside a multi-line TEXT', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('two lines', 3, 'three\nor more');
+  });
+});
+
+describe('when relexing after an edit that opens a TEXT', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('Age //', 0, '"');
+  });
+});
+
+describe('when relexing after an edit that closes an unterminated TEXT', (): void => {
+  it('should match lexing the whole text', (): void => {
+    const unterminatedText = 'Domain Entity "Student\n    integer Age\n';
+    const edit: TextEdit = { start: unterminatedText.length, end: unterminatedText.length, text: '"' };
+    const result: RelexResult = relex(unterminatedText, lex(unterminatedText), edit);
+    expect(tokenStrings(result.tokenBuffer)).toEqual(tokenStrings(lex(result.text)));
+  });
+});
+
+// Longer than any keyword literal, so the lexer looks past a token by more than it does for a keyword
+const digitRun: string = '1'.repeat(30);
+
+function relexAtEnd(text: string, insertText: string): RelexResult {
+  const edit: TextEdit = { start: text.length, end: text.length, text: insertText };
+  const result: RelexResult = relex(text, lex(text), edit);
+  expect(tokenStrings(result.tokenBuffer)).toEqual(tokenStrings(lex(result.text)));
+  return result;
+}
+
+describe('when relexing after an edit that closes a METAED_ID after a long digit run', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAtEnd(`Domain Entity Student [${digitRun}`, ']');
+  });
+});
+
+describe('when relexing after an edit that makes a DECIMAL_VALUE of a NEG_SIGN and a long digit run', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAtEnd(`    is optional -${digitRun}`, '.');
+  });
+});
+
+describe('when relexing after an edit inside a LINE_COMMENT', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('a comment', 1, 'no\ncomment');
+  });
+});
+
+describe('when relexing after deleting everything', (): void => {
+  it('should match lexing the whole text', (): void => {
+    relexAt('Begin', metaEdText.length, '');
+  });
+});
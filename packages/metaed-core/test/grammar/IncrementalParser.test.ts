@@ -0,0 +1,120 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { IncrementalParse, parseIncrementally, reparse, ReparseResult } from '../../src/grammar/IncrementalParser';
+import { applyTextEdit, TextEdit } from '../../src/grammar/IncrementalLexer';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+import { nodePositions } from './ParseTreeTestHelper';
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '',
+  'Descriptor Sex',
+  '    documentation "doc"',
+  '',
+  'Common Address',
+  '    documentation "A street address"',
+  '    integer Number',
+  '        documentation "doc"',
+  '        is optional',
+  'End Namespace',
+  'Begin Namespace Extension Sample',
+  'Domain Entity EdFi.Student additions',
+  '    integer Height',
+  '        documentation "doc"',
+  '        is optional',
+  'End Namespace',
+].join('\n');
+
+function editAt(text: string, search: string, deleteLength: number, insertText: string): TextEdit {
+  const start: number = text.indexOf(search);
+  return { start, end: start + deleteLength, text: insertText };
+}
+
+function expectSameAsWholeParse(result: ReparseResult) {
+  const failures: ValidationFailure[] = [];
+  const whole: IncrementalParse = parseIncrementally(new MetaEdErrorListener(failures), result.text);
+  expect(result.tree.toStringTree(result.tree.parser.ruleNames)).toBe(whole.tree.toStringTree(whole.tree.parser.ruleNames));
+  expect(nodePositions(result.tree, true)).toEqual(nodePositions(whole.tree, true));
+  expect(result.hasSyntaxErrors).toBe(failures.length > 0);
+}
+
+describe('when reparsing after an edit inside one entity', (): void => {
+  const previous: IncrementalParse = parseIncrementally(new MetaEdErrorListener([]), metaEdText);
+  const oldEntities: any[] = previous.tree.namespace(0).topLevelEntity();
+  const extensionEntity: any = previous.tree.namespace(1).topLevelEntity(0);
+  const edit: TextEdit = editAt(metaEdText, '"A street address"', 1, '"A mailing\n    and street');
+  const result: ReparseResult = reparse(new MetaEdErrorListener([]), previous, edit);
+
+  it('should parse only the edited entity again', (): void => {
+    expect(result.isFullReparse).toBe(false);
+    expect(result.changedEntities).toHaveLength(1);
+    expect(result.changedEntities[0].start.line).toBe(11);
+    expect(result.removedEntities).toEqual([oldEntities[2]]);
+  });
+
+  it('should keep the other entity contexts', (): void => {
+    expect(result.tree.namespace(0).topLevelEntity(0)).toBe(oldEntities[0]);
+    expect(result.tree.namespace(0).topLevelEntity(1)).toBe(oldEntities[1]);
+    expect(result.tree.namespace(0).topLevelEntity(2)).toBe(result.changedEntities[0]);
+    expect(result.tree.namespace(1).topLevelEntity(0)).toBe(extensionEntity);
+  });
+
+  it('should have the same tree and token positions as parsing the new text whole', (): void => {
+    expect(result.text).toBe(applyTextEdit(metaEdText, edit));
+    expectSameAsWholeParse(result);
+    expect(extensionEntity.start.line).toBe(19);
+  });
+});
+
+describe('when reparsing after adding an entity', (): void => {
+  const previous: IncrementalParse = parseIncrementally(new MetaEdErrorListener([]), metaEdText);
+  const edit: TextEdit = editAt(metaEdText, 'Descriptor Sex', 0, 'Descriptor Race\n    documentation "doc"\n\n');
+  const result: ReparseResult = reparse(new MetaEdErrorListener([]), previous, edit);
+
+  it('should parse the new entity', (): void => {
+    expect(result.isFullReparse).toBe(false);
+    expect(result.tree.namespace(0).topLevelEntity()).toHaveLength(4);
+    const descriptors: any[] = result.changedEntities.filter((entity: any) => entity.descriptor() != null);
+    expect(descriptors.map((entity: any) => entity.descriptor().descriptorName().getText())).toEqual(['Race']);
+    expectSameAsWholeParse(result);
+  });
+});
+
+describe('when reparsing after an edit that is a syntax error', (): void => {
+  const previous: IncrementalParse = parseIncrementally(new MetaEdErrorListener([]), metaEdText);
+  const edit: TextEdit = editAt(metaEdText, '    integer Number', 18, '    integer Number xyz');
+
+  it('should parse the whole text again and report the errors of a whole parse', (): void => {
+    const failures: ValidationFailure[] = [];
+    const result: ReparseResult = reparse(new MetaEdErrorListener(failures), previous, edit);
+    const wholeFailures: ValidationFailure[] = [];
+    parseIncrementally(new MetaEdErrorListener(wholeFailures), result.text);
+
+    expect(result.isFullReparse).toBe(true);
+    expect(result.hasSyntaxErrors).toBe(true);
+    expect(failures).toEqual(wholeFailures);
+    expect(result.changedEntities).toHaveLength(4);
+    expectSameAsWholeParse(result);
+  });
+});
+
+describe('when reparsing after an edit to a namespace line', (): void => {
+  const previous: IncrementalParse = parseIncrementally(new MetaEdErrorListener([]), metaEdText);
+  const edit: TextEdit = editAt(metaEdText, 'Sample', 6, 'Other');
+
+  it('should parse the whole text again', (): void => {
+    const result: ReparseResult = reparse(new MetaEdErrorListener([]), previous, edit);
+    expect(result.isFullReparse).toBe(true);
+    expect(result.tree.namespace(1).namespaceType().getText()).toBe('Other');
+    expectSameAsWholeParse(result);
+  });
+});
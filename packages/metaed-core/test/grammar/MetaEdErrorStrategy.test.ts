@@ -0,0 +1,116 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { buildMetaEdTwoStage } from '../../src/grammar/ParseTreeBuilder';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+const validMetaEd: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '',
+  'Descriptor Sex',
+  '    documentation "doc"',
+  'End Namespace',
+].join('\n');
+
+const brokenEntityMetaEd: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity School',
+  '    documentation "doc"',
+  '    integer SchoolId xyz',
+  '        documentation',
+  '        is part of identity abc',
+  '    string Name',
+  '        is optional',
+  '        documentation "doc"',
+  '',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+const brokenKeywordMetaEd: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity',
+  'Domain Entity',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+function parse(contents: string, resyncOnEntityError: boolean): { tree: any; failures: ValidationFailure[] } {
+  const failures: ValidationFailure[] = [];
+  const tree: any = buildMetaEdTwoStage(new MetaEdErrorListener(failures), contents, resyncOnEntityError);
+  return { tree, failures };
+}
+
+function entityNames(tree: any): string[] {
+  return tree
+    .namespace(0)
+    .topLevelEntity()
+    .map((entity: any) => entity.domainEntity())
+    .filter((domainEntity: any) => domainEntity != null && domainEntity.entityName() != null)
+    .filter((domainEntity: any) => domainEntity.entityName().ID() != null)
+    .map((domainEntity: any) => domainEntity.entityName().getText());
+}
+
+describe('when parsing valid MetaEd with the resynchronizing error strategy', (): void => {
+  const resynced = parse(validMetaEd, true);
+  const recovered = parse(validMetaEd, false);
+
+  it('should have no errors', (): void => {
+    expect(resynced.failures).toHaveLength(0);
+  });
+
+  it('should have the same parse tree as the default error strategy', (): void => {
+    expect(resynced.tree.toStringTree(MetaEdGrammar.prototype.ruleNames)).toBe(
+      recovered.tree.toStringTree(MetaEdGrammar.prototype.ruleNames),
+    );
+  });
+});
+
+describe('when parsing an entity with several syntax errors with the resynchronizing error strategy', (): void => {
+  const resynced = parse(brokenEntityMetaEd, true);
+  const recovered = parse(brokenEntityMetaEd, false);
+
+  it('should report a single error for the entity', (): void => {
+    expect(resynced.failures).toHaveLength(1);
+    expect(resynced.failures[0].sourceMap).toMatchObject({ line: 4, tokenText: 'xyz' });
+  });
+
+  it('should report more errors with the default error strategy', (): void => {
+    expect(recovered.failures.length).toBeGreaterThan(1);
+  });
+
+  it('should parse the following entity', (): void => {
+    expect(entityNames(resynced.tree)).toContain('Student');
+    const student: any = resynced.tree.namespace(0).topLevelEntity()[1];
+    expect(student.exception).toBeNull();
+  });
+});
+
+describe('when parsing entities broken at their keywords with the resynchronizing error strategy', (): void => {
+  const resynced = parse(brokenKeywordMetaEd, true);
+
+  it('should finish the parse with an error for each broken entity', (): void => {
+    expect(resynced.failures).toHaveLength(2);
+  });
+
+  it('should parse the following entity', (): void => {
+    expect(entityNames(resynced.tree)).toEqual(['Student']);
+  });
+});
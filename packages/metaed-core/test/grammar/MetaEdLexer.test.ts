@@ -0,0 +1,130 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { BaseLexer } from '../../src/grammar/gen/BaseLexer';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { TextToken } from '../../src/grammar/MetaEdTokenFactory';
+
+function tokensFrom(lexer: any): string[] {
+  const result: string[] = [];
+  for (;;) {
+    const token: any = lexer.nextToken();
+    result.push(`${token.type} ${token.start}-${token.stop} ${token.line}:${token.column} ${token.text}`);
+    if (token.type === antlr4.Token.EOF) break;
+  }
+  return result;
+}
+
+function expectSameTokensAsBaseLexer(inputText: string): void {
+  const expected: string[] = tokensFrom(new BaseLexer(new antlr4.InputStream(inputText)));
+  const actual: string[] = tokensFrom(new MetaEdLexer(new antlr4.InputStream(inputText)));
+  expect(actual).toEqual(expected);
+}
+
+describe('when lexing keywords that share prefixes', (): void => {
+  it('should match the BaseLexer token stream', (): void => {
+    expectSameTokensAsBaseLexer(
+      [
+        'Begin Namespace EdFi core',
+        'Domain Entity Student',
+        '    documentation "A student ""quoted"" doc"',
+        '    domain entity School',
+        '        documentation "doc"',
+        '        is optional',
+        '    domain entity identity Other is optional collection',
+        '    descriptor Sex with map type with optional map type',
+        '    is required collection is required',
+        'Domain DomainEntity Domain EntityX DomainX',
+        'End Namespace',
+      ].join('\n'),
+    );
+  });
+});
+
+describe('when lexing keyword prefixes that are not keywords', (): void => {
+  it('should match the BaseLexer token stream', (): void => {
+    expectSameTokensAsBaseLexer('is  optional is optionalx is optional collectio domain entit Domain\tEntity\r\n');
+  });
+});
+
+describe('when lexing identifiers, numbers and error characters', (): void => {
+  it('should match the BaseLexer token stream', (): void => {
+    expectSameTokensAsBaseLexer(
+      ['Abc123 aBc Ed.Fi 12 -3.5 +4 [123-4] // comment "text"', '"multi', 'line" zz Domain ~ é End Namespace'].join('\n'),
+    );
+  });
+});
+
+describe('when lexing text ending in whitespace', (): void => {
+  it('should match the BaseLexer token stream', (): void => {
+    expectSameTokensAsBaseLexer('Association A   \n\n  ');
+  });
+});
+
+describe('when lexing empty text', (): void => {
+  it('should match the BaseLexer token stream', (): void => {
+    expectSameTokensAsBaseLexer('');
+  });
+});
+
+describe('when lexing documentation text', (): void => {
+  const lexer = new MetaEdLexer(new antlr4.InputStream('documentation "A ""quoted"" doc"'));
+  lexer.nextToken();
+  const textToken: any = lexer.nextToken();
+
+  it('should create a TextToken', (): void => {
+    expect(textToken).toBeInstanceOf(TextToken);
+    expect(textToken.type).toBe(BaseLexer.TEXT);
+  });
+
+  it('should unescape and memoize the text', (): void => {
+    expect(textToken.unescapedText).toBe('A "quoted" doc');
+    expect(textToken.unescapedText).toBe(textToken.unescapedTextCache);
+  });
+});
+
+describe('when lexing runs of error characters', (): void => {
+  const lexer = new MetaEdLexer(new antlr4.InputStream('Domain ~~é Entity ~'));
+  const tokens: string[] = tokensFrom(lexer);
+
+  it('should have a token for each character', (): void => {
+    expect(tokens).toEqual([
+      `${BaseLexer.DOMAIN} 0-5 1:0 Domain`,
+      `${BaseLexer.ERROR_CHARACTER} 7-7 1:7 ~`,
+      `${BaseLexer.ERROR_CHARACTER} 8-8 1:8 ~`,
+      `${BaseLexer.ERROR_CHARACTER} 9-9 1:9 é`,
+      `${BaseLexer.ID} 11-16 1:11 Entity`,
+      `${BaseLexer.ERROR_CHARACTER} 18-18 1:18 ~`,
+      `${antlr4.Token.EOF} 19-18 1:19 <EOF>`,
+    ]);
+  });
+});
+
+describe('when lexing more error characters than the error budget', (): void => {
+  const lexer = new MetaEdLexer(new antlr4.InputStream('~ Abc ~ Def ~ Ghi ~'));
+  const errors: string[] = [];
+  lexer.removeErrorListeners();
+  lexer.addErrorListener({
+    syntaxError: (_recognizer, _offendingSymbol, line: number, column: number, message: string) =>
+      errors.push(`${line}:${column} ${message}`),
+  });
+  lexer.errorTokenBudget = 2;
+  const tokens: string[] = tokensFrom(lexer);
+
+  it('should stop lexing with EOF', (): void => {
+    expect(tokens.map((token) => token.split(' ')[0])).toEqual([
+      `${BaseLexer.ERROR_CHARACTER}`,
+      `${BaseLexer.ID}`,
+      `${BaseLexer.ERROR_CHARACTER}`,
+      `${BaseLexer.ID}`,
+      `${antlr4.Token.EOF}`,
+    ]);
+  });
+
+  it('should report a single error', (): void => {
+    expect(errors).toEqual(['1:12 too many unrecognized characters, lexing stopped after 2']);
+  });
+});
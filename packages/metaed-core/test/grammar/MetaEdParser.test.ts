@@ -0,0 +1,196 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { ParserATNSimulator } from '@edfi/antlr4/atn/ParserATNSimulator';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { MetaEdParser } from '../../src/grammar/MetaEdParser';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+function parse(inputText: string, createParser: (tokenStream: any) => any): { tree: string; failures: ValidationFailure[] } {
+  const failures: ValidationFailure[] = [];
+  const errorListener = new MetaEdErrorListener(failures);
+  const lexer = new MetaEdLexer(new antlr4.InputStream(inputText));
+  const parser = createParser(new antlr4.CommonTokenStream(lexer));
+  lexer.removeErrorListeners();
+  lexer.addErrorListener(errorListener);
+  parser.removeErrorListeners();
+  parser.addErrorListener(errorListener);
+  const tree: string = parser.metaEd().toStringTree(parser.ruleNames);
+  return { tree, failures };
+}
+
+function expectSameParseAsMetaEdGrammar(inputText: string): void {
+  const expected = parse(inputText, (tokenStream) => new MetaEdGrammar(tokenStream));
+  const actual = parse(inputText, (tokenStream) => new MetaEdParser(tokenStream));
+  expect(actual.tree).toBe(expected.tree);
+  expect(actual.failures).toEqual(expected.failures);
+}
+
+const entityVariants: string = [
+  'Begin Namespace EdFi core',
+  'Association StudentSchool',
+  '    documentation "doc"',
+  '    domain entity Student',
+  '        documentation "doc"',
+  '    domain entity School',
+  '        documentation "doc"',
+  'Association StudentSchool additions',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is optional',
+  'Association EdFi.StudentSchool additions',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is optional',
+  'Association StudentSchoolSubclass based on StudentSchool',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is optional',
+  'Common Address [1]',
+  '    documentation "doc"',
+  '    integer Number',
+  '        documentation "doc"',
+  '        is optional',
+  'Common Address additions',
+  '    integer Floor',
+  '        documentation "doc"',
+  '        is optional',
+  'Common AddressSubclass based on Address',
+  '    documentation "doc"',
+  '    integer Floor',
+  '        documentation "doc"',
+  '        is optional',
+  'Domain Entity Student deprecated "not used"',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  'Domain Entity EdFi.Student additions',
+  '    integer Height',
+  '        documentation "doc"',
+  '        is optional',
+  'Domain Entity School based on EducationOrganization',
+  '    documentation "doc"',
+  '    integer SchoolId',
+  '        documentation "doc"',
+  '        is part of identity',
+  'Interchange StudentInterchange',
+  '    documentation "doc"',
+  '    domain entity Student',
+  'Interchange StudentInterchange additions',
+  '    domain entity School',
+  'Descriptor Sex',
+  '    documentation "doc"',
+  'End Namespace',
+].join('\n');
+
+describe('when parsing each variant of the top level entities that share a keyword', (): void => {
+  it('should have the same parse tree as MetaEdGrammar', (): void => {
+    expectSameParseAsMetaEdGrammar(entityVariants);
+  });
+
+  it('should not simulate the ATN for the top level entity decision', (): void => {
+    const adaptivePredict = jest.spyOn(ParserATNSimulator.prototype, 'adaptivePredict');
+    try {
+      parse(entityVariants, (tokenStream) => new MetaEdParser(tokenStream));
+      const topLevelEntityDecision: number = MetaEdGrammar.prototype.atn.decisionToState.findIndex(
+        (state: any) => state.ruleIndex === MetaEdGrammar.RULE_topLevelEntity,
+      );
+      expect(adaptivePredict.mock.calls.filter((call: any[]) => call[1] === topLevelEntityDecision)).toHaveLength(0);
+    } finally {
+      adaptivePredict.mockRestore();
+    }
+  });
+});
+
+describe('when parsing top level entities with syntax errors after the shared keyword', (): void => {
+  it('should have the same errors as MetaEdGrammar', (): void => {
+    expectSameParseAsMetaEdGrammar(
+      [
+        'Begin Namespace EdFi core',
+        'Association StudentSchool integer',
+        '    documentation "doc"',
+        'Domain Entity additions',
+        '    integer Age',
+        'Interchange StudentInterchange based on Other',
+        '    documentation "doc"',
+        'Common',
+        'End Namespace',
+      ].join('\n'),
+    );
+  });
+});
+
+const qualifiedNames: string = [
+  'Begin Namespace Extension extension',
+  'Domain Entity EdFi.Student additions',
+  '    domain entity EdFi.School',
+  '        documentation "doc"',
+  '        is optional',
+  '    domain entity Program',
+  '        documentation "doc"',
+  '        is optional',
+  '    shared decimal EdFi.Currency named Balance',
+  '        documentation "doc"',
+  '        is optional',
+  '    shared string Name',
+  '        documentation "doc"',
+  '        is optional',
+  'Domain Entity School based on EdFi.EducationOrganization',
+  '    documentation "doc"',
+  '    integer SchoolId',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+describe('when parsing qualified and unqualified names', (): void => {
+  it('should have the same parse tree as MetaEdGrammar', (): void => {
+    expectSameParseAsMetaEdGrammar(qualifiedNames);
+  });
+
+  it('should not simulate the ATN for the qualified name decisions', (): void => {
+    const adaptivePredict = jest.spyOn(ParserATNSimulator.prototype, 'adaptivePredict');
+    try {
+      parse(qualifiedNames, (tokenStream) => new MetaEdParser(tokenStream));
+      const qualifiedNameDecisions: number[] = [
+        MetaEdGrammar.RULE_baseName,
+        MetaEdGrammar.RULE_extendeeName,
+        MetaEdGrammar.RULE_propertyName,
+        MetaEdGrammar.RULE_sharedPropertyType,
+      ].map((ruleIndex: number) =>
+        MetaEdGrammar.prototype.atn.decisionToState.findIndex((state: any) => state.ruleIndex === ruleIndex),
+      );
+      expect(adaptivePredict.mock.calls.filter((call: any[]) => qualifiedNameDecisions.includes(call[1]))).toHaveLength(0);
+    } finally {
+      adaptivePredict.mockRestore();
+    }
+  });
+});
+
+describe('when parsing names with syntax errors', (): void => {
+  it('should have the same errors as MetaEdGrammar', (): void => {
+    expectSameParseAsMetaEdGrammar(
+      [
+        'Begin Namespace Extension extension',
+        'Domain Entity EdFi.Student additions',
+        '    domain entity EdFi.',
+        '        documentation "doc"',
+        '        is optional',
+        '    domain entity School additions',
+        '        documentation "doc"',
+        '        is optional',
+        '    shared decimal .Currency named Balance',
+        '        documentation "doc"',
+        '        is optional',
+        'End Namespace',
+      ].join('\n'),
+    );
+  });
+});
@@ -4,7 +4,12 @@
 // See the LICENSE and NOTICES files in the project root for more information.
 
 import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
-import { buildTopLevelEntity, buildMetaEd } from '../../src/grammar/ParseTreeBuilder';
+import {
+  buildTopLevelEntity,
+  buildMetaEd,
+  buildMetaEdTwoStage,
+  buildTopLevelEntityTwoStage,
+} from '../../src/grammar/ParseTreeBuilder';
 import { ValidationFailure } from '../../src/validator/ValidationFailure';
 
 describe('when parsing top level entities', (): void => {
@@ -250,3 +255,61 @@ describe('when parsing full MetaEd', (): void => {
     expect(validationFailures).toMatchSnapshot();
   });
 });
+
+describe('when parsing in two stages', (): void => {
+  const validMetaEd = [
+    'Begin Namespace EdFi core',
+    'Domain Entity Student',
+    '    documentation "doc"',
+    '    integer Age',
+    '        documentation "doc"',
+    '        is part of identity',
+    'Domain Entity Staff based on EdFi.Person',
+    '    documentation "doc"',
+    '    domain entity EdFi.School',
+    '        documentation "doc"',
+    '        is optional',
+    'End Namespace',
+  ].join('\n');
+
+  const invalidMetaEd = [
+    'Begin Namespace EdFi core',
+    'Domain Entity Staff additions',
+    '    descriptor EducatorEffectiveness',
+    '        documentation "doc"',
+    '        is optional',
+    '    comvmon Recognition',
+    '        documentation "doc"',
+    '        is optional collection',
+    'End Namespace',
+  ].join('\n');
+
+  function parse(builder: typeof buildMetaEd, inputText: string): { tree: string; failures: ValidationFailure[] } {
+    const failures: ValidationFailure[] = [];
+    const parseTree: any = builder(new MetaEdErrorListener(failures), inputText);
+    return { tree: parseTree.toStringTree(parseTree.parser.ruleNames), failures };
+  }
+
+  it('should have the same parse tree as LL alone for valid MetaEd', (): void => {
+    const expected = parse(buildMetaEd, validMetaEd);
+    const actual = parse(buildMetaEdTwoStage, validMetaEd);
+    expect(actual.failures).toHaveLength(0);
+    expect(actual.tree).toBe(expected.tree);
+  });
+
+  it('should have the same parse tree and errors as LL alone for invalid MetaEd', (): void => {
+    const expected = parse(buildMetaEd, invalidMetaEd);
+    const actual = parse(buildMetaEdTwoStage, invalidMetaEd);
+    expect(actual.failures.length).toBeGreaterThan(0);
+    expect(actual.failures).toEqual(expected.failures);
+    expect(actual.tree).toBe(expected.tree);
+  });
+
+  it('should have the same errors as LL alone for a top level entity', (): void => {
+    const entity: string = invalidMetaEd.split('\n').slice(1, -1).join('\n');
+    const expected = parse(buildTopLevelEntity, entity);
+    const actual = parse(buildTopLevelEntityTwoStage, entity);
+    expect(actual.failures).toEqual(expected.failures);
+    expect(actual.tree).toBe(expected.tree);
+  });
+});
@@ -0,0 +1,29 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+/**
+ * Each rule context's rule index, start position and stop token, and each terminal's token, depth first. With
+ * offsets, also the start and stop offsets of each token, which the tokens of a compact parse tree do not have.
+ */
+export function nodePositions(tree: any, withOffsets: boolean = false): string[] {
+  const result: string[] = [];
+  const visit = (node: any) => {
+    if (node.symbol != null) {
+      const { type, line, column, start, stop, text } = node.symbol;
+      result.push(withOffsets ? `${type} ${line}:${column} ${start}-${stop} ${text}` : `${type} ${line}:${column} ${text}`);
+      return;
+    }
+    const { start, stop } = node;
+    const stopText: string = stop == null ? '' : stop.text;
+    result.push(
+      withOffsets
+        ? `${node.ruleIndex} ${start.line}:${start.column} ${start.start}-${stop == null ? '' : stop.stop} ${stopText}`
+        : `${node.ruleIndex} ${start.line}:${start.column} ${stopText}`,
+    );
+    if (node.children != null) node.children.forEach(visit);
+  };
+  visit(tree);
+  return result;
+}
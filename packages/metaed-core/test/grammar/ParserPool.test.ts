@@ -0,0 +1,79 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { ParserPool, PooledParser } from '../../src/grammar/ParserPool';
+import { buildMetaEd } from '../../src/grammar/ParseTreeBuilder';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+const validMetaEd: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+const invalidMetaEd: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity School',
+  '    documentation "doc"',
+  '    integer SchoolId xyz',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+function parseWithPool(
+  pool: ParserPool,
+  inputText: string,
+): { tree: string; failures: ValidationFailure[]; pooled: PooledParser } {
+  const failures: ValidationFailure[] = [];
+  const pooled: PooledParser = pool.acquire(new MetaEdErrorListener(failures), new antlr4.InputStream(inputText));
+  const parser: any = pooled.parser;
+  const tree: string = parser.metaEd().toStringTree(parser.ruleNames);
+  pool.release(pooled);
+  return { tree, failures, pooled };
+}
+
+function parseFresh(inputText: string): { tree: string; failures: ValidationFailure[] } {
+  const failures: ValidationFailure[] = [];
+  const parser: any = buildMetaEd(new MetaEdErrorListener(failures), inputText);
+  return { tree: parser.toStringTree(parser.parser.ruleNames), failures };
+}
+
+describe('when parsing with a pooled parser', (): void => {
+  const pool = new ParserPool();
+  const first = parseWithPool(pool, invalidMetaEd);
+  const second = parseWithPool(pool, validMetaEd);
+
+  it('should reuse the released lexer and parser', (): void => {
+    expect(second.pooled).toBe(first.pooled);
+    expect(pool.idle).toHaveLength(1);
+  });
+
+  it('should have the same parse trees and errors as a new parser', (): void => {
+    expect(first).toMatchObject(parseFresh(invalidMetaEd));
+    expect(second).toMatchObject(parseFresh(validMetaEd));
+    expect(first.failures).toHaveLength(1);
+    expect(second.failures).toHaveLength(0);
+  });
+});
+
+describe('when releasing more parsers than the pool keeps', (): void => {
+  it('should keep no more idle pairs than its maximum', (): void => {
+    const pool = new ParserPool(1);
+    const failures: ValidationFailure[] = [];
+    const first: PooledParser = pool.acquire(new MetaEdErrorListener(failures), new antlr4.InputStream(validMetaEd));
+    const second: PooledParser = pool.acquire(new MetaEdErrorListener(failures), new antlr4.InputStream(validMetaEd));
+    expect(second).not.toBe(first);
+    pool.release(first);
+    pool.release(second);
+    expect(pool.idle).toEqual([first]);
+  });
+});
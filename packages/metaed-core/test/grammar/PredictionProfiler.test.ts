@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { clearDfas } from '../../src/grammar/DfaCache';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { DecisionProfile, formatDecisionProfiles, profileMetaEd } from '../../src/grammar/PredictionProfiler';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '    domain entity EdFi.School',
+  '        documentation "doc"',
+  '        is optional',
+  '',
+  'Domain Entity School',
+  '    documentation "doc"',
+  '    integer SchoolId',
+  '        documentation "doc"',
+  '        is part of identity',
+  'End Namespace',
+].join('\n');
+
+function profile(): { profiles: DecisionProfile[]; failures: ValidationFailure[] } {
+  const failures: ValidationFailure[] = [];
+  const profiles: DecisionProfile[] = profileMetaEd(new MetaEdErrorListener(failures), metaEdText);
+  return { profiles, failures };
+}
+
+function total(profiles: DecisionProfile[], field: keyof DecisionProfile): number {
+  return profiles.reduce((sum: number, decisionProfile: DecisionProfile) => sum + Number(decisionProfile[field]), 0);
+}
+
+describe('when profiling the decisions of a parse', (): void => {
+  clearDfas();
+  const cold = profile();
+  const warm = profile();
+
+  it('should parse without errors', (): void => {
+    expect(cold.failures).toHaveLength(0);
+  });
+
+  it('should name the rule of each decision', (): void => {
+    const { atn } = MetaEdGrammar.prototype;
+    expect(cold.profiles.length).toBeGreaterThan(0);
+    cold.profiles.forEach((decisionProfile: DecisionProfile) => {
+      const { ruleIndex } = atn.decisionToState[decisionProfile.decision];
+      expect(decisionProfile.ruleName).toBe(MetaEdGrammar.prototype.ruleNames[ruleIndex]);
+      expect(decisionProfile.invocations).toBeGreaterThan(0);
+    });
+  });
+
+  it('should count the fixed lookahead predictions of topLevelEntity', (): void => {
+    const topLevelEntity: DecisionProfile | undefined = cold.profiles.find(
+      (decisionProfile: DecisionProfile) => decisionProfile.ruleName === 'topLevelEntity',
+    );
+    expect(topLevelEntity).toMatchObject({ invocations: 2, fixedLookaheadPredictions: 2, dfaMisses: 0 });
+  });
+
+  it('should have DFA misses only while the DFAs are cold', (): void => {
+    expect(total(cold.profiles, 'dfaMisses')).toBeGreaterThan(0);
+    expect(total(warm.profiles, 'dfaMisses')).toBe(0);
+    expect(total(warm.profiles, 'invocations')).toBe(total(cold.profiles, 'invocations'));
+  });
+
+  it('should format a line per decision', (): void => {
+    expect(formatDecisionProfiles(cold.profiles).split('\n')).toHaveLength(cold.profiles.length + 1);
+  });
+});
@@ -0,0 +1,109 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { buildMetaEd } from '../../src/grammar/ParseTreeBuilder';
+import { MetaEdParseEvent, parseMetaEdStreaming } from '../../src/grammar/StreamingParser';
+import { ValidationFailure } from '../../src/validator/ValidationFailure';
+
+const metaEdText: string = [
+  'Begin Namespace EdFi core',
+  'Domain Entity Student',
+  '    documentation "doc"',
+  '    integer Age',
+  '        documentation "doc"',
+  '        is part of identity',
+  '    common Address',
+  '        documentation "doc"',
+  '        is optional',
+  '        merge Address.Number with Number',
+  '',
+  'Enumeration Sex',
+  '    documentation "doc"',
+  '    item "Male"',
+  'End Namespace',
+].join('\n');
+
+function parseEvents(text: string, failures: ValidationFailure[] = []): MetaEdParseEvent[] {
+  const events: MetaEdParseEvent[] = [];
+  parseMetaEdStreaming(new MetaEdErrorListener(failures), text, (event: MetaEdParseEvent) => events.push(event));
+  return events;
+}
+
+function describeEvents(events: MetaEdParseEvent[]): string[] {
+  return events
+    .filter((event: MetaEdParseEvent) => event.category !== 'other')
+    .map((event: MetaEdParseEvent) => `${event.type} ${event.category} ${event.ruleName}`);
+}
+
+describe('when parsing without a parse tree', (): void => {
+  const failures: ValidationFailure[] = [];
+  const events: MetaEdParseEvent[] = parseEvents(metaEdText, failures);
+
+  it('should emit enter and exit events by category in parse order', (): void => {
+    expect(describeEvents(events)).toEqual([
+      'enter namespace namespace',
+      'enter entity domainEntity',
+      'enter documentation documentation',
+      'exit documentation documentation',
+      'enter property integerProperty',
+      'enter documentation propertyDocumentation',
+      'exit documentation propertyDocumentation',
+      'exit property integerProperty',
+      'enter property commonProperty',
+      'enter documentation propertyDocumentation',
+      'exit documentation propertyDocumentation',
+      'enter mergeDirective mergeDirective',
+      'exit mergeDirective mergeDirective',
+      'exit property commonProperty',
+      'exit entity domainEntity',
+      'enter entity enumeration',
+      'enter documentation documentation',
+      'exit documentation documentation',
+      'enter item enumerationItem',
+      'exit item enumerationItem',
+      'exit entity enumeration',
+      'exit namespace namespace',
+    ]);
+    expect(failures).toHaveLength(0);
+  });
+
+  it('should emit an event for every rule context of a parse tree', (): void => {
+    const tree: any = buildMetaEd(new MetaEdErrorListener([]), metaEdText);
+    const ruleNames: string[] = [];
+    const visit = (context: any) => {
+      if (context.symbol != null) return;
+      ruleNames.push(tree.parser.ruleNames[context.ruleIndex]);
+      if (context.children != null) context.children.forEach(visit);
+    };
+    visit(tree);
+    const enterRuleNames: string[] = events
+      .filter((event: MetaEdParseEvent) => event.type === 'enter')
+      .map((event: MetaEdParseEvent) => event.ruleName);
+    expect(enterRuleNames).toEqual(ruleNames);
+  });
+
+  it('should give exited contexts their own tokens but no child rule contexts', (): void => {
+    const entityName: any = events.find(
+      (event: MetaEdParseEvent) => event.type === 'exit' && event.ruleName === 'entityName',
+    );
+    expect(entityName.context.ID().getText()).toBe('Student');
+    expect(entityName.context.stop.line).toBe(2);
+
+    const entity: any = events.find((event: MetaEdParseEvent) => event.type === 'exit' && event.category === 'entity');
+    expect(entity.context.start.text).toBe('Domain Entity');
+    expect(entity.context.entityName()).toBeNull();
+    expect(entity.context.parentCtx.children).toBeNull();
+  });
+});
+
+describe('when parsing without a parse tree with a syntax error', (): void => {
+  it('should report the error and continue through recovery', (): void => {
+    const failures: ValidationFailure[] = [];
+    const events: MetaEdParseEvent[] = parseEvents(metaEdText.replace('    integer Age', '    integer Age xyz'), failures);
+    expect(failures).toHaveLength(1);
+    expect(describeEvents(events)).toContain('exit entity enumeration');
+  });
+});
@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { MetaEdGrammar } from '../../src/grammar/gen/MetaEdGrammar';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { CompactTokenStream } from '../../src/grammar/CompactTokenStream';
+import { MetaEdErrorListener } from '../../src/grammar/MetaEdErrorListener';
+import { buildMetaEdTwoStage } from '../../src/grammar/ParseTreeBuilder';
+import { SymbolTable, symbolIdOf, symbolTableOf } from '../../src/grammar/SymbolTable';
+
+describe('when interning names', (): void => {
+  const symbolTable = new SymbolTable();
+  const studentId: number = symbolTable.intern('Student');
+  const schoolId: number = symbolTable.intern('School');
+
+  it('should have one symbol id per distinct name', (): void => {
+    expect(studentId).toBe(0);
+    expect(schoolId).toBe(1);
+    expect(symbolTable.intern(['Stu', 'dent'].join(''))).toBe(studentId);
+    expect(symbolTable.size).toBe(2);
+  });
+
+  it('should look up names and symbol ids', (): void => {
+    expect(symbolTable.nameOf(schoolId)).toBe('School');
+    expect(symbolTable.symbolIdFor('School')).toBe(schoolId);
+    expect(symbolTable.symbolIdFor('Staff')).toBe(-1);
+  });
+});
+
+describe('when parsing names with a lexer symbol table', (): void => {
+  const symbolTable = new SymbolTable();
+  const lexer = new MetaEdLexer(
+    new antlr4.InputStream(
+      [
+        'Domain Entity Student',
+        '    documentation "doc"',
+        '    domain entity EdFi.Student',
+        '        documentation "doc"',
+        '        is optional',
+      ].join('\n'),
+    ),
+  );
+  lexer.symbolTable = symbolTable;
+  const parser: any = new MetaEdGrammar(new CompactTokenStream(lexer));
+  const domainEntity: any = parser.domainEntity();
+  const entityName: any = domainEntity.entityName();
+  const propertyName: any = domainEntity.property(0).domainEntityProperty().propertyName();
+
+  it('should have the same symbol id for the same name', (): void => {
+    expect(symbolIdOf(entityName)).toBe(symbolTable.symbolIdFor('Student'));
+    expect(symbolIdOf(propertyName)).toBe(symbolIdOf(entityName));
+    expect(symbolIdOf(propertyName.propertyNamespace())).toBe(symbolTable.symbolIdFor('EdFi'));
+  });
+
+  it('should have the canonical name as ID token text', (): void => {
+    expect(entityName.ID().getText()).toBe(symbolTable.nameOf(symbolIdOf(entityName)));
+    expect(propertyName.localPropertyName().ID().getSymbol().text).toBe(entityName.ID().getSymbol().text);
+  });
+
+  it('should reach the symbol table from a context', (): void => {
+    expect(symbolTableOf(entityName)).toBe(symbolTable);
+  });
+});
+
+describe('when parsing names in separate parses', (): void => {
+  const metaEdText: string = [
+    'Begin Namespace EdFi core',
+    'Domain Entity Student',
+    '    documentation "doc"',
+    '    domain entity School',
+    '        documentation "doc"',
+    '        is optional',
+    'End Namespace',
+  ].join('\n');
+  const entityNameOf = (tree: any): any => tree.namespace(0).topLevelEntity(0).domainEntity().entityName();
+  const firstEntityName: any = entityNameOf(buildMetaEdTwoStage(new MetaEdErrorListener([]), metaEdText));
+  const secondEntityName: any = entityNameOf(buildMetaEdTwoStage(new MetaEdErrorListener([]), metaEdText));
+  const firstSymbolTable: SymbolTable | null = symbolTableOf(firstEntityName);
+
+  it('should not intern names until asked for their text or symbol ids', (): void => {
+    expect(firstSymbolTable).not.toBeNull();
+    expect(firstSymbolTable?.size).toBe(0);
+    expect(firstEntityName.ID().getText()).toBe('Student');
+    expect(firstSymbolTable?.size).toBe(1);
+    expect(symbolIdOf(firstEntityName)).toBe(0);
+    expect(firstSymbolTable?.size).toBe(1);
+  });
+
+  it('should have a symbol table for each parse', (): void => {
+    expect(symbolTableOf(secondEntityName)).not.toBe(firstSymbolTable);
+    expect(symbolIdOf(secondEntityName)).toBe(0);
+  });
+});
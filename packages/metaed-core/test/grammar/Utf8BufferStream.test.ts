@@ -0,0 +1,62 @@
+// SPDX-License-Identifier: Apache-2.0
+// Licensed to the Ed-Fi Alliance under one or more agreements.
+// The Ed-Fi Alliance licenses this file to you under the Apache License, Version 2.0.
+// See the LICENSE and NOTICES files in the project root for more information.
+
+import antlr4 from '@edfi/antlr4/index';
+import { MetaEdLexer } from '../../src/grammar/MetaEdLexer';
+import { Utf8BufferStream } from '../../src/grammar/Utf8BufferStream';
+
+function tokensFrom(charStream: any): any[] {
+  const lexer = new MetaEdLexer(charStream);
+  const result: any[] = [];
+  for (;;) {
+    const token: any = lexer.nextToken();
+    result.push(token);
+    if (token.type === antlr4.Token.EOF) break;
+  }
+  return result;
+}
+
+const describeToken = (token: any): string => `${token.type} ${token.line}:${token.column} ${token.text}`;
+
+describe('when lexing ascii text from a buffer', (): void => {
+  const inputText: string = [
+    'Begin Namespace EdFi core',
+    'Domain Entity Student',
+    '    documentation "A student ""quoted"" doc"',
+    '    integer Age is optional',
+    'End Namespace',
+  ].join('\n');
+
+  it('should have the same tokens and indexes as a string input stream', (): void => {
+    const expected: string[] = tokensFrom(new antlr4.InputStream(inputText)).map(
+      (token) => `${describeToken(token)} ${token.start}-${token.stop}`,
+    );
+    const actual: string[] = tokensFrom(new Utf8BufferStream(Buffer.from(inputText, 'utf8'))).map(
+      (token) => `${describeToken(token)} ${token.start}-${token.stop}`,
+    );
+    expect(actual).toEqual(expected);
+  });
+});
+
+describe('when lexing multibyte text from a buffer', (): void => {
+  const inputText: string = [
+    'Domain Entity Étudiant',
+    '    documentation "Ünïcödé ““quotes”” — 学生"',
+    'ß Student',
+  ].join('\n');
+
+  it('should have the same token text, lines and columns as a string input stream', (): void => {
+    const expected: string[] = tokensFrom(new antlr4.InputStream(inputText)).map(describeToken);
+    const actual: string[] = tokensFrom(new Utf8BufferStream(Buffer.from(inputText, 'utf8'))).map(describeToken);
+    expect(actual).toEqual(expected);
+  });
+
+  it('should use byte offsets for token indexes', (): void => {
+    const tokens: any[] = tokensFrom(new Utf8BufferStream(Buffer.from(inputText, 'utf8')));
+    const lastId: any = tokens[tokens.length - 2];
+    expect(lastId.text).toBe('Student');
+    expect(lastId.start).toBe(Buffer.byteLength(inputText, 'utf8') - 'Student'.length);
+  });
+});